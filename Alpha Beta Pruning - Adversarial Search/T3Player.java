@@ -24,6 +24,14 @@ class Pair {
 	
 public class T3Player {
     
+    // Log2 of the number of buckets in the transposition table
+    private static final int TABLE_BITS = 16;
+    
+    // Search results kept across moves and games; scores are relative to
+    // the player to move, so they hold whichever side the T3Player plays
+    private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+    private long nodesSearched;
+    
     /**
      * Workhorse of an AI T3Player's choice mechanics that, given a game state,
      * makes the optimal choice from that state as defined by the mechanics of
@@ -36,107 +44,119 @@ public class T3Player {
      * @return The T3Player's optimal action.
      */
     public T3Action choose (T3State state) {
+    	nodesSearched = 0;
     	Map<T3Action, T3State> moves = state.getTransitions();
 		for (T3Action childAction : moves.keySet()) {
 			if(moves.get(childAction).isWin()) {
 				return childAction;
 			}
 		}
-
-        return alphaBeta(state, Integer.MIN_VALUE, Integer.MAX_VALUE, true).action;
+		
+		// Each move is searched with a window that only admits scores better
+		// than the best so far, so the first of equally good moves is kept
+		Pair optimalMove = new Pair(Integer.MIN_VALUE, null);
+		for (T3Action childAction : moves.keySet()) {
+			int alpha = Math.max(optimalMove.score, -1);
+			int v = -alphaBeta(moves.get(childAction), -1, -alpha);
+			if (v > optimalMove.score) {
+				optimalMove.score = v;
+				optimalMove.action = childAction;
+			}
+			if (v == 1) {
+				break;
+			}
+		}
+        return optimalMove.action;
     }
     
     /**
-     *  Returns the action and score for the player to win, finds the  most optimal
-     *  action and uses alpha-beta pruning to efficiently search for the best move.
-     *  Returns a pair that consists of an integer representing the score of the move
-     *  and a T3Action which is the column, row, and move value.
-     *  Takes in four parameters of a T3State, integer to represent alpha, integer
-     *  to represent beta, and a boolean telling which player's turn it is.
-     *  @return The pair of action and score that is most optimal for the player
+     * Returns the number of states visited by the search in the last call to
+     * {@link #choose(T3State)}.
+     * @return The number of states searched
      */
-    private Pair alphaBeta(T3State node, int alpha, int beta, boolean oddTurn) {
-    	//base cases
-    	if(node.isWin() && !oddTurn) {
-    		return new Pair(1, null);
-    	}
-    	
-    	if(node.isWin() && oddTurn) {
-    		return new Pair(-1, null);
+    public long getNodesSearched () {
+    	return nodesSearched;
+    }
+    
+    /**
+     *  Returns the minimax score of the given state for the player to move in
+     *  it: 1 if they can force a win, -1 if their opponent can, and 0 for a tie,
+     *  using alpha-beta pruning (in negamax form) to skip moves that cannot
+     *  matter, and the transposition table to skip states already searched.
+     *  Scores outside the (alpha, beta) window are only bounds: a score of at
+     *  most alpha is an upper bound, and one of at least beta a lower bound.
+     *  @param node The state to score
+     *  @param alpha Score the player to move is already assured of elsewhere
+     *  @param beta Score beyond which the opponent will avoid this state
+     *  @return The score of the state for the player to move
+     */
+    private int alphaBeta(T3State node, int alpha, int beta) {
+    	nodesSearched++;
+    	//base cases: a win was made by the player who just moved
+    	if(node.isWin()) {
+    		return -1;
     	}
     	
     	if(node.isTie()) {
-    		return new Pair(0, null);
+    		return 0;
     	}
-
     	
-    	if(oddTurn) {
-    		//T3Action move = null;
-    		int v = Integer.MIN_VALUE;
-    		int finalV = Integer.MIN_VALUE;
-    		Pair optimalMove = new Pair(0, null);
-    		
-    		Map<T3Action, T3State> moves = node.getTransitions();
-    		for (T3Action childAction : moves.keySet()) {
-    		//for(Map.Entry<T3Action, T3State> entry : node.getTransitions().entrySet()) {
-    			v = Math.max(v, alphaBeta(moves.get(childAction), alpha, beta, !oddTurn).score);
-    			//v = Math.max(v, alphaBeta(entry.getValue(), alpha, beta, false).score);
-    			alpha = Math.max(alpha, v);
-    			
-    			if (beta <= alpha) {
-    				break;
-    			}
-    		
-    			if (v > finalV) {
-    				//v = p.score;
-    				//move = childAction;
-    				finalV = v;
-    				optimalMove.action = childAction;
-    				//optimalMove.action = entry.getKey();
-    				optimalMove.score = v;
+    	long hash = node.getZobristHash();
+    	int depth = node.getEmptyCount();
+    	T3Action hint = null;
+    	int entry = table.probe(hash);
+    	if (entry != 0) {
+    		int score = TranspositionTable.score(entry), bound = TranspositionTable.bound(entry);
+    		if (TranspositionTable.depth(entry) >= depth) {
+    			if (bound == TranspositionTable.EXACT
+    				|| (bound == TranspositionTable.LOWER && score >= beta)
+    				|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+    				return score;
     			}
-
-    			
     		}
-    		
-    		//Pair optimalMove = new Pair(v, move);
-    		return optimalMove;
-          
-    	} else {
-    		//T3Action move = null;
-    		int v = Integer.MAX_VALUE;
-    		int finalV = Integer.MAX_VALUE;
-    		Pair optimalMove = new Pair(0, null);
-    		
-    		Map<T3Action, T3State> moves = node.getTransitions();
-    		for (T3Action childAction : moves.keySet()) {
-    		//for(Map.Entry<T3Action, T3State> entry : node.getTransitions().entrySet()) {
-    			v = Math.min(v, alphaBeta(moves.get(childAction), alpha, beta, !oddTurn).score);
-    			//v = Math.min(v, alphaBeta(entry.getValue(), alpha, beta, true).score);
-    			beta = Math.min(beta, v);
-
-    			if (beta <= alpha) {
-    				break;
-    			}
-    			
-    			if (v > finalV) {
-    				//v = p.score;
-    				//move = p.action;
-    				finalV = v;
-    				optimalMove.action = childAction;
-    				//optimalMove.action = entry.getKey();
-    				optimalMove.score = v;
+    		hint = TranspositionTable.bestMove(entry);
+    		if (hint != null && !node.isValidAction(hint)) {
+    			hint = null;
+    		}
+    	}
+    	
+    	int originalAlpha = alpha;
+    	Pair optimalMove = new Pair(Integer.MIN_VALUE, null);
+    	// The best move found before is tried first, as the likeliest to
+    	// cause a cutoff, followed by the rest in col, row, then move order
+    	if (hint != null) {
+    		int v = -alphaBeta(node.getNextState(hint), -beta, -alpha);
+    		optimalMove.score = v;
+    		optimalMove.action = hint;
+    		alpha = Math.max(alpha, v);
+    	}
+    	int[] numbers = node.getMoves();
+    	search:
+    	for (int col = 0; col < 3 && alpha < beta; col++) {
+    		for (int row = 0; row < 3; row++) {
+    			for (int number : numbers) {
+    				T3Action childAction = new T3Action(col, row, number);
+    				if (!node.isValidAction(childAction) || childAction.equals(hint)) {
+    					continue;
+    				}
+    				int v = -alphaBeta(node.getNextState(childAction), -beta, -alpha);
+    				if (v > optimalMove.score) {
+    					optimalMove.score = v;
+    					optimalMove.action = childAction;
+    				}
+    				alpha = Math.max(alpha, v);
+    				if (beta <= alpha) {
+    					break search;
+    				}
     			}
-    			
-    		
     		}
-
-    		
-    		//Pair optimalMove = new Pair(v, childAction);
-    		return optimalMove;
     	}
     	
+    	int bound = (optimalMove.score <= originalAlpha) ? TranspositionTable.UPPER
+    			  : (optimalMove.score >= beta) ? TranspositionTable.LOWER
+    			  : TranspositionTable.EXACT;
+    	table.store(hash, optimalMove.score, bound, depth, optimalMove.action);
+    	return optimalMove.score;
     }
     
 }
-
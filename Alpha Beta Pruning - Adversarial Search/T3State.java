@@ -19,11 +19,26 @@ public class T3State {
     // -----------------------------------------------------------------------------
     private int[][] state;
     private boolean oddTurn;
+    // Zobrist hash of the board and turn, updated with each move
+    private long zobrist;
     
     // Private Constants
     // -----------------------------------------------------------------------------
     private static final int MAX_MOVE = 6;
     private static final int WIN_TARGET = 13;
+    // Random keys XORed together into the Zobrist hash: one per number in
+    // each cell (by row * 3 + col), and one for the odd player's turn
+    private static final long[][] CELL_KEYS = new long[9][MAX_MOVE+1];
+    private static final long ODD_TURN_KEY;
+    static {
+        Random rng = new Random(0x7433L);
+        for (long[] cell : CELL_KEYS) {
+            for (int move = 1; move <= MAX_MOVE; move++) {
+                cell[move] = rng.nextLong();
+            }
+        }
+        ODD_TURN_KEY = rng.nextLong();
+    }
     
     // Constructors
     // -----------------------------------------------------------------------------
@@ -35,17 +50,27 @@ public class T3State {
     public T3State (boolean oddTurn) {
         this.state = new int[3][3];
         this.oddTurn = oddTurn;
+        this.zobrist = (oddTurn) ? ODD_TURN_KEY : 0;
     }
     
     /**
      * Constructs a new T3 board-state with the given configuration (Warning:
-     * not a deep copy of the 2D int array).
+     * not a deep copy of the 2D int array, which must not be modified afterwards,
+     * as the state's hash is computed from it here).
      * @param oddTurn Whether or not P1 places odds
      * @param state 2D array of ints with the starting game configuration
      */
     public T3State (boolean oddTurn, int[][] state) {
         this.state = state;
         this.oddTurn = oddTurn;
+        this.zobrist = (oddTurn) ? ODD_TURN_KEY : 0;
+        for (int r = 0; r < state.length; r++) {
+            for (int c = 0; c < state[r].length; c++) {
+                if (state[r][c] != 0) {
+                    this.zobrist ^= CELL_KEYS[r * 3 + c][state[r][c]];
+                }
+            }
+        }
     }
     
     // Methods
@@ -83,6 +108,8 @@ public class T3State {
         T3State nextState = this.clone();
         nextState.state[act.row][act.col] = act.move;
         nextState.oddTurn = ! this.oddTurn;
+        // Both turns' keys differ by ODD_TURN_KEY, so toggling it switches turns
+        nextState.zobrist = this.zobrist ^ CELL_KEYS[act.row * 3 + act.col][act.move] ^ ODD_TURN_KEY;
         return nextState;
     }
     
@@ -148,12 +175,38 @@ public class T3State {
         return !(this.isWin()) && ! Arrays.stream(this.state).flatMapToInt(Arrays::stream).anyMatch(i -> i == 0);
     }
     
+    /**
+     * Returns the Zobrist hash of this state, which identifies the board and
+     * whose turn it is, for use as a key in a {@link TranspositionTable}.
+     * @return 64-bit hash of this state
+     */
+    public long getZobristHash () {
+        return this.zobrist;
+    }
+    
+    /**
+     * Returns the number of spots on the board that have no number yet.
+     * @return The number of empty spots
+     */
+    public int getEmptyCount () {
+        int empty = 0;
+        for (int[] r : this.state) {
+            for (int spot : r) {
+                if (spot == 0) {
+                    empty++;
+                }
+            }
+        }
+        return empty;
+    }
+    
     @Override
     public T3State clone () {
         T3State copy = new T3State(this.oddTurn);
         for (int i = 0; i < state.length; i++) {
             copy.state[i] = state[i].clone();
         }
+        copy.zobrist = this.zobrist;
         return copy;
     }
     
@@ -176,7 +229,7 @@ public class T3State {
     
     @Override
     public int hashCode () {
-        return Objects.hash(this.state, this.oddTurn);
+        return Long.hashCode(this.zobrist);
     }
     
     
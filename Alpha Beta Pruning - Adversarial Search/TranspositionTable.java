@@ -0,0 +1,138 @@
+/**
+ * TranspositionTable.java
+ */
+package main.t3;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size cache of search results for T3States, keyed by their Zobrist
+ * hash, so that a position reached again by a different order of moves is
+ * not searched again. Each entry records the score found (relative to the
+ * player to move), whether it is exact or only a lower or upper bound (when
+ * the search was cut off by alpha-beta pruning), the depth searched, and the
+ * best move found.
+ *
+ * Entries live in buckets of two: a hash maps to one bucket, whose first slot
+ * keeps the deepest search stored there and whose second slot always takes
+ * the newest one, so that deep (expensive) results survive while recent ones
+ * still find room.
+ */
+public class TranspositionTable {
+
+    // Bound types of a stored score
+    public static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    private final long[] keys;
+    // Packed entries: score + 1 in bits 0-1, bound in bits 2-3, depth in
+    // bits 4-7, best move's cell (row * 3 + col) in bits 8-11 and number in
+    // bits 12-15, and bit 16 set for an occupied slot
+    private final int[] entries;
+    private final int mask;
+
+    /**
+     * Constructs a new, empty TranspositionTable.
+     *
+     * @param bucketBits Log2 of the number of two-entry buckets
+     */
+    public TranspositionTable (int bucketBits) {
+        if (bucketBits < 0 || bucketBits > 28) {
+            throw new IllegalArgumentException("bucketBits must be between 0 and 28");
+        }
+        keys = new long[2 << bucketBits];
+        entries = new int[2 << bucketBits];
+        mask = (1 << bucketBits) - 1;
+    }
+
+    /**
+     * Returns the packed entry stored for the given hash.
+     *
+     * @param hash Zobrist hash of a state
+     * @return The packed entry, or 0 if there is none
+     */
+    public int probe (long hash) {
+        int slot = bucket(hash);
+        if (entries[slot] != 0 && keys[slot] == hash) {
+            return entries[slot];
+        }
+        if (entries[slot + 1] != 0 && keys[slot + 1] == hash) {
+            return entries[slot + 1];
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result for the given hash, in the bucket's depth-preferred
+     * slot if it is free, holds the same state, or holds a shallower search,
+     * and in its always-replace slot otherwise.
+     *
+     * @param hash Zobrist hash of the state searched
+     * @param score Score found, -1, 0 or 1, relative to the player to move
+     * @param bound EXACT, LOWER or UPPER
+     * @param depth Number of plies searched below the state
+     * @param best Best move found, or null if none
+     */
+    public void store (long hash, int score, int bound, int depth, T3Action best) {
+        int entry = (1 << 16) | (score + 1) | (bound << 2) | (depth << 4);
+        if (best != null) {
+            entry |= ((best.row * 3 + best.col) << 8) | (best.move << 12);
+        }
+        int slot = bucket(hash);
+        if (entries[slot] == 0 || keys[slot] == hash || depth >= depth(entries[slot])) {
+            keys[slot] = hash;
+            entries[slot] = entry;
+        } else {
+            keys[slot + 1] = hash;
+            entries[slot + 1] = entry;
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear () {
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * @param entry A packed entry from {@link #probe(long)}
+     * @return Its score, relative to the player to move
+     */
+    public static int score (int entry) {
+        return (entry & 3) - 1;
+    }
+
+    /**
+     * @param entry A packed entry from {@link #probe(long)}
+     * @return Its bound type: EXACT, LOWER or UPPER
+     */
+    public static int bound (int entry) {
+        return (entry >>> 2) & 3;
+    }
+
+    /**
+     * @param entry A packed entry from {@link #probe(long)}
+     * @return The number of plies searched for it
+     */
+    public static int depth (int entry) {
+        return (entry >>> 4) & 15;
+    }
+
+    /**
+     * @param entry A packed entry from {@link #probe(long)}
+     * @return Its best move, or null if none was recorded
+     */
+    public static T3Action bestMove (int entry) {
+        int move = (entry >>> 12) & 15;
+        if (move == 0) {
+            return null;
+        }
+        int cell = (entry >>> 8) & 15;
+        return new T3Action(cell % 3, cell / 3, move);
+    }
+
+    private int bucket (long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & mask) << 1;
+    }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * HuffmanBenchmark.java
+ */
+
+package main.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import main.compression.Huffman;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks of Huffman construction, compression and decompression over
+ * synthetic corpora of varying size and character skew. Besides operations
+ * per second, every benchmark reports a "bytes" counter: the corpus bytes
+ * (characters) processed per second, i.e. MB/s once divided by 10^6. Run
+ * through {@link #main(String[])}, or with JMH's "-prof gc" option, to also
+ * get the allocation rate of each benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class HuffmanBenchmark {
+    
+    /**
+     * Shapes of synthetic corpus: UNIFORM draws evenly from 64 characters,
+     * ZIPFIAN draws from 256 characters with Zipf (s = 1) frequencies,
+     * ENGLISH strings together common English words with Zipf frequencies, and
+     * BINARY draws evenly from all 256 byte values. (In ZIPFIAN and BINARY,
+     * character 23 is replaced by 256, since it marks the end of a message.)
+     */
+    public enum Distribution { UNIFORM, ZIPFIAN, ENGLISH, BINARY }
+    
+    // Huffman's (package-private) end of transmission character, which would
+    // end decompression early, and the character generated in its place
+    private static final char ETB_CHAR = 23, ETB_REPLACEMENT = 256;
+    
+    private static final String[] ENGLISH_WORDS = {
+        "the", "of", "and", "to", "a", "in", "is", "you", "that", "it", "he", "was",
+        "for", "on", "are", "as", "with", "his", "they", "I", "at", "be", "this",
+        "have", "from", "or", "one", "had", "by", "word", "but", "not", "what",
+        "all", "were", "we", "when", "your", "can", "said", "there", "use", "an",
+        "each", "which", "she", "do", "how", "their", "if", "will", "up", "other",
+        "about", "out", "many", "then", "them", "these", "so", "some", "her",
+        "would", "make", "like", "him", "into", "time", "has", "look", "two",
+        "more", "write", "go", "see", "number", "no", "way", "could", "people"
+    };
+    
+    @Param({"UNIFORM", "ZIPFIAN", "ENGLISH", "BINARY"})
+    public Distribution distribution;
+    
+    // 1 KB, 64 KB, 1 MB, 16 MB, 100 MB
+    @Param({"1024", "65536", "1048576", "16777216", "104857600"})
+    public int size;
+    
+    private String corpus;
+    private Huffman huffman;
+    private byte[] compressed, compressedInterleaved;
+    
+    /**
+     * Counts the corpus bytes processed, reported by JMH as a rate alongside
+     * each benchmark's operations per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp () {
+        corpus = generate(distribution, size, new Random(42));
+        huffman = new Huffman(corpus);
+        compressed = huffman.compress(corpus);
+        compressedInterleaved = huffman.compressInterleaved(corpus);
+        // Every benchmark counts the whole corpus as processed, so make sure
+        // it all comes back
+        if (!corpus.equals(huffman.decompress(compressed))
+            || !corpus.equals(huffman.decompressInterleaved(compressedInterleaved))) {
+            throw new IllegalStateException("Corpus does not survive a round trip");
+        }
+    }
+    
+    @Benchmark
+    public Huffman build (Bytes bytes) {
+        bytes.bytes += size;
+        return new Huffman(corpus);
+    }
+    
+    @Benchmark
+    public byte[] compress (Bytes bytes) {
+        bytes.bytes += size;
+        return huffman.compress(corpus);
+    }
+    
+    @Benchmark
+    public String decompress (Bytes bytes) {
+        bytes.bytes += size;
+        return huffman.decompress(compressed);
+    }
+    
+    @Benchmark
+    public byte[] compressInterleaved (Bytes bytes) {
+        bytes.bytes += size;
+        return huffman.compressInterleaved(corpus);
+    }
+    
+    @Benchmark
+    public String decompressInterleaved (Bytes bytes) {
+        bytes.bytes += size;
+        return huffman.decompressInterleaved(compressedInterleaved);
+    }
+    
+    @Benchmark
+    public void roundTrip (Bytes bytes, Blackhole blackhole) {
+        bytes.bytes += size;
+        blackhole.consume(huffman.decompress(huffman.compress(corpus)));
+    }
+    
+    /**
+     * Generates a corpus of the given number of characters with the given
+     * distribution.
+     */
+    static String generate (Distribution distribution, int size, Random rng) {
+        StringBuilder corpus = new StringBuilder(size);
+        switch (distribution) {
+            case UNIFORM:
+                while (corpus.length() < size) {
+                    corpus.append((char) (' ' + rng.nextInt(64)));
+                }
+                break;
+            case ZIPFIAN:
+                double[] cumulative = zipfCumulative(256);
+                while (corpus.length() < size) {
+                    corpus.append(byteCharacter(sample(cumulative, rng)));
+                }
+                break;
+            case ENGLISH:
+                double[] wordCumulative = zipfCumulative(ENGLISH_WORDS.length);
+                while (corpus.length() < size) {
+                    corpus.append(ENGLISH_WORDS[sample(wordCumulative, rng)]);
+                    corpus.append(rng.nextInt(12) == 0 ? ". " : " ");
+                }
+                corpus.setLength(size);
+                break;
+            case BINARY:
+                while (corpus.length() < size) {
+                    corpus.append(byteCharacter(rng.nextInt(256)));
+                }
+                break;
+        }
+        return corpus.toString();
+    }
+    
+    private static char byteCharacter (int value) {
+        return (value == ETB_CHAR) ? ETB_REPLACEMENT : (char) value;
+    }
+    
+    private static double[] zipfCumulative (int n) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+    
+    private static int sample (double[] cumulative, Random rng) {
+        double u = rng.nextDouble();
+        int lo = 0, hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < u) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    /**
+     * Runs every benchmark in this class with the GC profiler attached, so that
+     * allocation rates are reported next to throughput.
+     */
+    public static void main (String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(HuffmanBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+    
+}
@@ -0,0 +1,190 @@
+/**
+ * BKTree.java
+ */
+
+package main.distle;
+
+import static main.distle.EditDistanceUtils.*;
+import java.util.*;
+
+/**
+ * Burkhard-Keller tree over the words of a dictionary, answering which words
+ * are within a given edit distance of a query, or nearest to it, without
+ * computing the distance to every word. Each word's children are grouped by
+ * their distance to it, and the triangle inequality rules out every child
+ * group too near or too far to hold a match.
+ *
+ * The game's edit distance does not obey the triangle inequality, so the tree
+ * is arranged by the unrestricted Damerau-Levenshtein distance, which does and
+ * never exceeds it: every word within distance d of a query by editDistance is
+ * within d by the metric, so the tree finds a superset of the matches, and
+ * each is then confirmed with editDistance.
+ */
+public class BKTree {
+
+    // Number of dictionaries whose trees are shared before the least
+    // recently used is dropped
+    private static final int MAX_SHARED = 4;
+    // Trees already built, by dictionary fingerprint, shared by every player
+    private static final LinkedHashMap<Long, BKTree> SHARED = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<Long, BKTree> eldest) {
+            return size() > MAX_SHARED;
+        }
+    };
+
+    private final String[] words;
+    // Tree structure over the word indices: each node's first child and next
+    // sibling (-1 if none), and its metric distance to its parent
+    private final int[] firstChild, nextSibling, parentDistance;
+
+    /**
+     * Builds the tree over the given words, which it keeps and must not be
+     * modified afterwards.
+     *
+     * @param words The dictionary, without duplicates
+     */
+    public BKTree (String[] words) {
+        this.words = words;
+        firstChild = new int[words.length];
+        nextSibling = new int[words.length];
+        parentDistance = new int[words.length];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        for (int i = 1; i < words.length; i++) {
+            insert(i);
+        }
+    }
+
+    /**
+     * Returns the tree for the dictionary with the given fingerprint, building
+     * it over the given words only if no tree is held for it. Trees are held
+     * for the MAX_SHARED most recently used dictionaries. The
+     * returned tree's words may be in a different order than those given, so
+     * indices into the dictionary should use {@link #getWords()}.
+     *
+     * @param words The dictionary, without duplicates
+     * @param fingerprint The dictionary's fingerprint, as from
+     * {@link OpeningBook#fingerprint(String[])}
+     * @return The shared tree for the dictionary
+     */
+    public static BKTree shared (String[] words, long fingerprint) {
+        synchronized (SHARED) {
+            BKTree tree = SHARED.get(fingerprint);
+            if (tree != null) {
+                return tree;
+            }
+        }
+        // Built outside the lock so that other dictionaries aren't held up;
+        // if another thread raced us here, keep the one it shared
+        BKTree tree = new BKTree(words);
+        synchronized (SHARED) {
+            BKTree existing = SHARED.putIfAbsent(fingerprint, tree);
+            return (existing != null) ? existing : tree;
+        }
+    }
+
+    /**
+     * @return The words of the tree, in the order its indices refer to
+     */
+    public String[] getWords () {
+        return words;
+    }
+
+    private void insert (int word) {
+        int node = 0;
+        while (true) {
+            int distance = damerauLevenshteinDistance(words[node], words[word]);
+            int child = firstChild[node];
+            while (child >= 0 && parentDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                parentDistance[word] = distance;
+                nextSibling[word] = firstChild[node];
+                firstChild[node] = word;
+                return;
+            }
+            node = child;
+        }
+    }
+
+
+    // -----------------------------------------------
+    // Queries
+    // -----------------------------------------------
+
+    /**
+     * Returns the indices of the words within the given edit distance of the
+     * query.
+     *
+     * @param query The word to search around
+     * @param maxDistance The greatest edit distance to include
+     * @return Ascending indices of every word w with
+     * editDistance(query, w) <= maxDistance
+     */
+    public int[] within (String query, int maxDistance) {
+        if (words.length == 0) {
+            return new int[0];
+        }
+        int[] found = new int[16];
+        int size = 0;
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int distance = damerauLevenshteinDistance(query, words[node]);
+            if (distance <= maxDistance && editDistanceWithin(query, words[node], maxDistance) <= maxDistance) {
+                if (size == found.length) {
+                    found = Arrays.copyOf(found, size * 2);
+                }
+                found[size++] = node;
+            }
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (Math.abs(parentDistance[child] - distance) <= maxDistance) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = child;
+                }
+            }
+        }
+        found = Arrays.copyOf(found, size);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * Returns the indices of the k words nearest to the query by edit
+     * distance, searching ever wider radii until enough are found.
+     *
+     * @param query The word to search around
+     * @param k The number of words to return
+     * @return Indices of the min(k, dictionary size) nearest words, nearest
+     * first and in ascending order among equally near words
+     */
+    public int[] nearest (String query, int k) {
+        k = Math.min(k, words.length);
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] found = within(query, 0);
+        for (int radius = 1; found.length < k; radius++) {
+            found = within(query, radius);
+        }
+        // Every word nearer than the k-th is within the final radius, so
+        // ordering those by (distance, index) gives the answer
+        long[] ranked = new long[found.length];
+        for (int i = 0; i < found.length; i++) {
+            ranked[i] = ((long) editDistance(query, words[found[i]]) << 32) | found[i];
+        }
+        Arrays.sort(ranked);
+        int[] nearest = new int[k];
+        for (int i = 0; i < k; i++) {
+            nearest[i] = (int) ranked[i];
+        }
+        return nearest;
+    }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * CandidateSet.java
+ */
+
+package main.distle;
+
+import java.util.Arrays;
+
+/**
+ * Set of dictionary indices kept as a bitset, one bit per word, so that the
+ * words consistent with several rounds of feedback are found by ANDing each
+ * round's filter into the set rather than building a new collection.
+ */
+public class CandidateSet {
+
+    private final long[] bits;
+    private final int size;
+
+    /**
+     * Constructs a new CandidateSet over a dictionary of the given size.
+     *
+     * @param size The number of words in the dictionary
+     * @param full true to start with every word, false to start empty
+     */
+    public CandidateSet (int size, boolean full) {
+        this.size = size;
+        bits = new long[(size + 63) >>> 6];
+        if (full && size > 0) {
+            Arrays.fill(bits, -1L);
+            bits[bits.length - 1] = -1L >>> (-size & 63);
+        }
+    }
+
+    /**
+     * Constructs a new CandidateSet holding the given indices.
+     *
+     * @param size The number of words in the dictionary
+     * @param indices Indices of the words in the set
+     */
+    public CandidateSet (int size, int[] indices) {
+        this(size, false);
+        for (int index : indices) {
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * @param index Index of a word
+     * @return true if the word is in the set
+     */
+    public boolean contains (int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Removes every word that is not in the given set.
+     *
+     * @param other Set over the same dictionary
+     */
+    public void retainAll (CandidateSet other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= other.bits[i];
+        }
+    }
+
+    /**
+     * @return The number of words in the set
+     */
+    public int cardinality () {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return The indices of the words in the set, in ascending order
+     */
+    public int[] toArray () {
+        int[] indices = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            for (long word = bits[i]; word != 0; word &= word - 1) {
+                indices[count++] = (i << 6) | Long.numberOfTrailingZeros(word);
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * @return The number of words in the dictionary
+     */
+    public int getDictionarySize () {
+        return size;
+    }
+
+}
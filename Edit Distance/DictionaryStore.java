@@ -0,0 +1,404 @@
+/**
+ * DictionaryStore.java
+ */
+
+package main.distle;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Read-only Distle dictionary in a compact binary format that can be shared by
+ * any number of games. The words are kept, in sorted order, as UTF-8 in one
+ * contiguous byte arena with an array of their offsets, beside a minimal
+ * perfect hash (hash and displace) that maps every word to its index. So
+ * selecting a random word or checking membership is O(1), and a store saved
+ * with {@link #save(Path)} is mapped into memory rather than read.
+ *
+ * The format, all in one buffer, is: a header (magic, word count, bucket
+ * count, slot count, fingerprint), the word count + 1 arena offsets, each
+ * bucket's displacement, each slot's word index (-1 if empty), and the arena.
+ */
+public class DictionaryStore {
+
+    // Leading int of every dictionary store file: "\u0089DST", whose first
+    // byte cannot begin a line of UTF-8 text, so no word list is taken for a store
+    private static final int MAGIC = 0x89445354;
+    private static final int HEADER_BYTES = 24;
+    // Average number of words hashed to the same bucket
+    private static final int BUCKET_SIZE = 4;
+
+    private final ByteBuffer buffer;
+    private final int size, buckets, slots;
+    private final int offsetsAt, displacementsAt, slotsAt, arenaAt;
+    private final long fingerprint;
+    // Words decoded from the arena so far; entries are filled in by any
+    // thread on first use, which is safe because Strings are immutable
+    private final String[] words;
+    private final Set<String> view;
+
+    private DictionaryStore (ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a dictionary store");
+        }
+        this.buffer = buffer;
+        size = buffer.getInt(4);
+        buckets = buffer.getInt(8);
+        slots = buffer.getInt(12);
+        fingerprint = buffer.getLong(16);
+        if (size < 0 || buckets < 1 || slots < Math.max(1, size)) {
+            throw new IllegalArgumentException("Corrupt dictionary store: " + size + " words in "
+                    + buckets + " buckets and " + slots + " slots");
+        }
+        long end = HEADER_BYTES + 4L * (size + 1L + buckets + slots);
+        if (end > buffer.capacity()) {
+            throw new IllegalArgumentException("Corrupt dictionary store: tables end at byte " + end
+                    + " of " + buffer.capacity());
+        }
+        offsetsAt = HEADER_BYTES;
+        displacementsAt = offsetsAt + 4 * (size + 1);
+        slotsAt = displacementsAt + 4 * buckets;
+        arenaAt = slotsAt + 4 * slots;
+        validateTables();
+        words = new String[size];
+        view = new WordSet();
+    }
+
+    /**
+     * Checks that the arena offsets run in order from 0 to the end of the
+     * buffer and that every slot holds -1 or the index of a word, so no
+     * lookup can read outside the buffer.
+     */
+    private void validateTables () {
+        int previous = 0;
+        for (int i = 0; i <= size; i++) {
+            int offset = buffer.getInt(offsetsAt + 4 * i);
+            if ((i == 0) ? offset != 0 : offset < previous) {
+                throw new IllegalArgumentException("Corrupt dictionary store: offset " + i + " is " + offset);
+            }
+            previous = offset;
+        }
+        if (previous != buffer.capacity() - arenaAt) {
+            throw new IllegalArgumentException("Corrupt dictionary store: arena of " + previous
+                    + " bytes in " + (buffer.capacity() - arenaAt));
+        }
+        for (int i = 0; i < slots; i++) {
+            int index = buffer.getInt(slotsAt + 4 * i);
+            if (index < -1 || index >= size) {
+                throw new IllegalArgumentException("Corrupt dictionary store: slot " + i + " holds " + index);
+            }
+        }
+    }
+
+    /**
+     * Builds a store in memory holding the given words.
+     *
+     * @param dictionary The words to store
+     * @return The store of the words
+     */
+    public static DictionaryStore build (Collection<String> dictionary) {
+        String[] sorted = new TreeSet<>(dictionary).toArray(new String[0]);
+        int size = sorted.length, buckets = Math.max(1, size / BUCKET_SIZE), slots = Math.max(1, size);
+
+        byte[][] encoded = new byte[size][];
+        int arenaBytes = 0;
+        for (int i = 0; i < size; i++) {
+            encoded[i] = sorted[i].getBytes(StandardCharsets.UTF_8);
+            arenaBytes += encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * (size + 1 + buckets + slots) + arenaBytes);
+        buffer.putInt(MAGIC).putInt(size).putInt(buckets).putInt(slots).putLong(OpeningBook.fingerprint(sorted));
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(offset);
+            offset += encoded[i].length;
+        }
+        buffer.putInt(offset);
+        int[][] hashTable = buildPerfectHash(sorted, buckets, slots);
+        for (int displacement : hashTable[0]) {
+            buffer.putInt(displacement);
+        }
+        for (int word : hashTable[1]) {
+            buffer.putInt(word);
+        }
+        for (byte[] word : encoded) {
+            buffer.put(word);
+        }
+        buffer.flip();
+        return new DictionaryStore(buffer);
+    }
+
+    /**
+     * Opens the dictionary in the given file: a store saved by
+     * {@link #save(Path)}, which is mapped read-only into memory, or else a
+     * text file of new-line separated words, which are lower-cased and
+     * built into a new store.
+     *
+     * @param path Path pointing to a dictionary file
+     * @return The store of the dictionary's words
+     * @throws IOException If the file cannot be read, or is a truncated or corrupt store
+     */
+    public static DictionaryStore load (Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0);
+            if (!magic.hasRemaining() && magic.getInt(0) == MAGIC) {
+                try {
+                    return new DictionaryStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(path + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        Set<String> dictionary = new HashSet<>();
+        Scanner sc = new Scanner(path.toFile());
+        while (sc.hasNextLine()) {
+            dictionary.add(sc.nextLine().toLowerCase());
+        }
+        sc.close();
+        return build(dictionary);
+    }
+
+    /**
+     * Writes this store to the given file, to be mapped by {@link #load(Path)}.
+     *
+     * @param path The file to write
+     * @throws IOException
+     */
+    public void save (Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer contents = buffer.duplicate();
+            contents.clear();
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        }
+    }
+
+
+    // -----------------------------------------------
+    // Access
+    // -----------------------------------------------
+
+    /**
+     * @return The number of words in the dictionary
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * Returns the word with the given index, words being indexed in sorted order.
+     *
+     * @param index Index between 0 and size() - 1
+     * @return The word at the index
+     */
+    public String get (int index) {
+        String word = words[index];
+        if (word == null) {
+            int start = buffer.getInt(offsetsAt + 4 * index), end = buffer.getInt(offsetsAt + 4 * index + 4);
+            byte[] bytes = new byte[end - start];
+            buffer.duplicate().position(arenaAt + start).get(bytes);
+            word = new String(bytes, StandardCharsets.UTF_8);
+            words[index] = word;
+        }
+        return word;
+    }
+
+    /**
+     * Returns the index of the given word.
+     *
+     * @param word The word to look up
+     * @return The word's index, or -1 if it is not in the dictionary
+     */
+    public int indexOf (String word) {
+        if (size == 0) {
+            return -1;
+        }
+        long hash = hash(word);
+        int displacement = buffer.getInt(displacementsAt + 4 * bucket(hash, buckets));
+        int index = buffer.getInt(slotsAt + 4 * slot(hash, displacement, slots));
+        return (index >= 0 && get(index).equals(word)) ? index : -1;
+    }
+
+    /**
+     * @param word The word to look up
+     * @return true if the word is in the dictionary
+     */
+    public boolean contains (String word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * @param rng Source of randomness
+     * @return A word chosen uniformly at random from the dictionary
+     */
+    public String getRandomWord (Random rng) {
+        return get(rng.nextInt(size));
+    }
+
+    /**
+     * Returns every word of the dictionary in index order. The array is
+     * shared by every caller and must not be modified.
+     *
+     * @return The words of the dictionary
+     */
+    public String[] getWords () {
+        for (int i = 0; i < size; i++) {
+            get(i);
+        }
+        return words;
+    }
+
+    /**
+     * @return The dictionary's fingerprint, as from {@link OpeningBook#fingerprint(String[])}
+     */
+    public long getFingerprint () {
+        return fingerprint;
+    }
+
+    /**
+     * @return An unmodifiable Set view of the dictionary, backed by this store
+     */
+    public Set<String> asSet () {
+        return view;
+    }
+
+    /**
+     * Unmodifiable Set view of a DictionaryStore, through which a DistlePlayer
+     * given the dictionary can reach the store itself.
+     */
+    public class WordSet extends AbstractSet<String> {
+
+        /**
+         * @return The store this Set is a view of
+         */
+        public DictionaryStore getStore () {
+            return DictionaryStore.this;
+        }
+
+        @Override
+        public boolean contains (Object o) {
+            return (o instanceof String) && DictionaryStore.this.contains((String) o);
+        }
+
+        @Override
+        public int size () {
+            return size;
+        }
+
+        @Override
+        public Iterator<String> iterator () {
+            return new Iterator<String>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext () {
+                    return next < size;
+                }
+
+                @Override
+                public String next () {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(next++);
+                }
+            };
+        }
+
+    }
+
+
+    // -----------------------------------------------
+    // Perfect Hashing
+    // -----------------------------------------------
+
+    /**
+     * Places every word in its own slot: the words are grouped into buckets,
+     * and each bucket, largest first, is given the first displacement that
+     * sends all of its words to free slots.
+     *
+     * @return Each bucket's displacement, and each slot's word index (or -1)
+     */
+    private static int[][] buildPerfectHash (String[] words, int buckets, int slots) {
+        long[] hashes = new long[words.length];
+        List<List<Integer>> members = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < words.length; i++) {
+            hashes[i] = hash(words[i]);
+            members.get(bucket(hashes[i], buckets)).add(i);
+        }
+        Integer[] order = new Integer[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> members.get(b).size() - members.get(a).size());
+
+        int[] displacements = new int[buckets];
+        int[] table = new int[slots];
+        Arrays.fill(table, -1);
+        int[] placed = new int[BUCKET_SIZE * 4];
+        for (int b : order) {
+            List<Integer> bucket = members.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            if (placed.length < bucket.size()) {
+                placed = new int[bucket.size()];
+            }
+            for (int displacement = 0; ; displacement++) {
+                int count = 0;
+                for (int word : bucket) {
+                    int slot = slot(hashes[word], displacement, slots);
+                    if (table[slot] >= 0) {
+                        break;
+                    }
+                    table[slot] = word;
+                    placed[count++] = slot;
+                }
+                if (count == bucket.size()) {
+                    displacements[b] = displacement;
+                    break;
+                }
+                // Collided with another bucket or itself: undo and retry
+                for (int i = 0; i < count; i++) {
+                    table[placed[i]] = -1;
+                }
+            }
+        }
+        return new int[][] { displacements, table };
+    }
+
+    private static long hash (String word) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static int bucket (long hash, int buckets) {
+        return (int) Long.remainderUnsigned(mix(hash), buckets);
+    }
+
+    private static int slot (long hash, int displacement, int slots) {
+        return (int) Long.remainderUnsigned(mix(hash + displacement * 0x9e3779b97f4a7c15L + 1), slots);
+    }
+
+    private static long mix (long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+}
@@ -7,6 +7,7 @@ package main.distle;
 
 import static main.distle.EditDistanceUtils.*;
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -15,6 +16,7 @@ import java.util.*;
  */
 public class DistleGame {
     
+    private DictionaryStore store;
     private Set<String> dictionary;
     private Scanner input;
     private String word;
@@ -22,6 +24,11 @@ public class DistleGame {
     private int guesses, maxGuesses;
     private boolean verbose, wonGame;
     private Random rng;
+    // Index for suggesting words when a guess is not in the dictionary,
+    // built the first time one is needed
+    private BKTree spellChecker;
+    // Receives telemetry, if set
+    private DistleListener listener;
     
     /**
      * Constructs a new DistleGame object that is responsible for managing the game
@@ -51,6 +58,17 @@ public class DistleGame {
         this.init(dictionaryPath, verbose, ai);
     }
     
+    /**
+     * See {@link #DistleGame(String dictionaryPath, boolean verbose, DistlePlayer ai, int seed)}. This version
+     * plays with an already loaded dictionary, which is read-only, so that many games can share one.
+     */
+    public DistleGame (DictionaryStore store, boolean verbose, DistlePlayer ai, int seed) {
+        this.store = store;
+        this.dictionary = store.asSet();
+        this.init(verbose, ai);
+        this.rng.setSeed(seed);
+    }
+    
     /**
      * Initializes the fields of the DistleGame object.
      * 
@@ -59,6 +77,14 @@ public class DistleGame {
      */
     private void init (String dictionaryPath, boolean verbose, DistlePlayer ai) throws FileNotFoundException {
         this.loadDictionary(dictionaryPath);
+        this.init(verbose, ai);
+    }
+    
+    /**
+     * Initializes the fields of the DistleGame object other than its dictionary.
+     */
+    private void init (boolean verbose, DistlePlayer ai) {
+        this.spellChecker = null;
         this.ai = ai;
         this.verbose = verbose;
         this.rng = new Random();
@@ -106,22 +132,44 @@ public class DistleGame {
     }
     
     /**
-     * Loads the dictionary in the given path into this DistleGame's set.
+     * Sets the listener to report the progress of games, and the time the AI player takes
+     * for each guess, to; it is also set on the AI player. With none set (the default),
+     * nothing is measured.
+     * 
+     * @param listener The listener, or null for none
+     */
+    public void setListener (DistleListener listener) {
+        this.listener = listener;
+        if (this.ai != null) {
+            this.ai.setListener(listener);
+        }
+    }
+    
+    /**
+     * Getter for the number of guesses made in the last begun game, including the correct
+     * one if it was won.
+     * @return The number of guesses made in the last begun game.
+     */
+    public int getGuesses () {
+        return this.guesses;
+    }
+    
+    /**
+     * Loads the dictionary in the given path into this DistleGame's store: a text file of
+     * new-line separated words, or a file saved by {@link DictionaryStore#save(Path)}.
      * 
      * @param dictionaryPath Path pointing to a dictionary file.
      * @throws FileNotFoundException
      */
     private void loadDictionary (String dictionaryPath) throws FileNotFoundException {
-        this.dictionary = new HashSet<>();
-        File file = new File(dictionaryPath);
-        Scanner sc = new Scanner(file);
-        while (sc.hasNextLine()) {
-            String word = sc.nextLine().toLowerCase();
-            if (!dictionary.contains(word)) {
-                dictionary.add(word);
-            }
+        try {
+            this.store = DictionaryStore.load(Paths.get(dictionaryPath));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(dictionaryPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        sc.close();
+        this.dictionary = this.store.asSet();
     }
     
     /**
@@ -129,9 +177,7 @@ public class DistleGame {
      * @return A random word from this.dictionary
      */
     private String getRandomWord () {
-        // Turns out this is the best way to get a random value from a Set in Java;
-        // yikes. https://stackoverflow.com/questions/124671/picking-a-random-element-from-a-set
-        return this.dictionary.stream().skip(this.rng.nextInt(this.dictionary.size())).findFirst().orElse(null);
+        return this.store.getRandomWord(this.rng);
     }
     
     /**
@@ -147,8 +193,11 @@ public class DistleGame {
         this.guesses = 0;
         this.wonGame = false;
         
+        if (this.listener != null) {
+            this.listener.gameStarted(this.store.size(), maxGuesses);
+        }
         if (this.ai != null) {
-            this.ai.startNewGame(new HashSet<>(this.dictionary), maxGuesses);
+            this.ai.startNewGame(this.dictionary, maxGuesses);
         }
         
         if (this.verbose) {
@@ -161,12 +210,17 @@ public class DistleGame {
             if (this.verbose) {
                 System.out.println("[G] Guess " + (this.guesses+1) + " / " + this.maxGuesses);
             }
+            long start = (this.listener != null) ? System.nanoTime() : 0;
             String guess = this.getGuess();
+            if (this.listener != null && this.ai != null) {
+                this.listener.guessMade(guess, System.nanoTime() - start);
+            }
             this.guesses++;
             
             if (! this.dictionary.contains(guess)) {
                 if (this.verbose) {
                     System.out.println("  [X] Word not in dictionary, try again (lost your turn lul)");
+                    System.out.println("    [?] Did you mean: " + String.join(", ", this.getSuggestions(guess)));
                 }
                 continue;
             }
@@ -181,6 +235,9 @@ public class DistleGame {
                     }
                     System.out.println("[W] You guessed correctly, congratulations!");
                 }
+                if (this.listener != null) {
+                    this.listener.gameEnded(true, this.guesses);
+                }
                 return;
             }
             
@@ -189,7 +246,11 @@ public class DistleGame {
                 if (this.verbose) {
                     System.out.println("  > " + guess);
                 }
+                start = (this.listener != null) ? System.nanoTime() : 0;
                 this.ai.getFeedback(guess, distance, transforms);
+                if (this.listener != null) {
+                    this.listener.feedbackProcessed(guess, System.nanoTime() - start);
+                }
             }
             
             if (this.verbose) {
@@ -202,6 +263,26 @@ public class DistleGame {
         if (this.verbose) {
             System.out.println("[L] Your word game is weak, too bad. The correct answer: " + this.word);
         }
+        if (this.listener != null) {
+            this.listener.gameEnded(false, this.guesses);
+        }
+    }
+    
+    /**
+     * Returns the dictionary words nearest to the given word by edit distance.
+     * 
+     * @param guess A word that is not in the dictionary
+     * @return Up to 3 of the words nearest to the guess, nearest first
+     */
+    private List<String> getSuggestions (String guess) {
+        if (this.spellChecker == null) {
+            this.spellChecker = BKTree.shared(this.store.getWords(), this.store.getFingerprint());
+        }
+        List<String> suggestions = new ArrayList<>();
+        for (int index : this.spellChecker.nearest(guess, 3)) {
+            suggestions.add(this.spellChecker.getWords()[index]);
+        }
+        return suggestions;
     }
     
     /**
@@ -0,0 +1,68 @@
+/**
+ * DistleListener.java
+ */
+
+package main.distle;
+
+/**
+ * Receives telemetry from a DistleGame and its DistlePlayer as a game is
+ * played. Every method does nothing by default, so listeners implement only
+ * those they need; games and players with no listener set skip the
+ * measurements entirely.
+ */
+public interface DistleListener {
+
+    /**
+     * Called when a new game begins.
+     *
+     * @param dictionarySize The number of words in the game's dictionary
+     * @param maxGuesses The max number of guesses the player can make
+     */
+    default void gameStarted (int dictionarySize, int maxGuesses) {}
+
+    /**
+     * Called by the game after the player has made a guess.
+     *
+     * @param guess The guess made
+     * @param nanos Time the player took to make it
+     */
+    default void guessMade (String guess, long nanos) {}
+
+    /**
+     * Called by the game after the player has processed the feedback to an
+     * incorrect guess.
+     *
+     * @param guess The incorrect guess
+     * @param nanos Time the player took to process the feedback
+     */
+    default void feedbackProcessed (String guess, long nanos) {}
+
+    /**
+     * Called by the player when it has chosen a guess.
+     *
+     * @param guess The chosen guess
+     * @param distanceComputations Number of edit distances (or transformation
+     * signatures) computed to choose it
+     */
+    default void guessChosen (String guess, long distanceComputations) {}
+
+    /**
+     * Called by the player when it has filtered its candidates by the
+     * feedback to a guess.
+     *
+     * @param guess The incorrect guess
+     * @param candidatesRemaining Number of words still consistent with all feedback
+     * @param distanceComputations Number of edit distances (or transformation
+     * signatures) computed to filter them
+     */
+    default void candidatesFiltered (String guess, int candidatesRemaining, long distanceComputations) {}
+
+    /**
+     * Called when a game is over.
+     *
+     * @param won Whether the player guessed the secret word
+     * @param guesses The number of guesses made
+     */
+    default void gameEnded (boolean won, int guesses) {}
+
+}
@@ -0,0 +1,214 @@
+/**
+ * DistleMetrics.java
+ */
+
+package main.distle;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+/**
+ * DistleListener that aggregates the telemetry of any number of concurrent
+ * games into counters and histograms, and can be published through JMX with
+ * {@link #register(String)} so it is visible from tools such as JConsole.
+ */
+public class DistleMetrics implements DistleListener, DistleMetricsMBean {
+
+    private final LongAdder gamesStarted = new LongAdder(), gamesWon = new LongAdder();
+    private final Histogram guessNanos = new Histogram(), feedbackNanos = new Histogram();
+    private final Histogram candidatesRemaining = new Histogram();
+    private final Histogram selectionComputations = new Histogram(), filterComputations = new Histogram();
+
+    /**
+     * Creates a DistleMetrics and registers it with the platform MBean server
+     * as main.distle:type=DistleMetrics,name=&lt;name&gt;.
+     *
+     * @param name Name distinguishing these metrics from others registered
+     * @return The registered metrics
+     * @throws JMException If the name is invalid or already registered
+     */
+    public static DistleMetrics register (String name) throws JMException {
+        DistleMetrics metrics = new DistleMetrics();
+        ObjectName objectName = new ObjectName("main.distle:type=DistleMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        return metrics;
+    }
+
+
+    // -----------------------------------------------
+    // Listener
+    // -----------------------------------------------
+
+    @Override
+    public void gameStarted (int dictionarySize, int maxGuesses) {
+        gamesStarted.increment();
+    }
+
+    @Override
+    public void guessMade (String guess, long nanos) {
+        guessNanos.record(nanos);
+    }
+
+    @Override
+    public void feedbackProcessed (String guess, long nanos) {
+        feedbackNanos.record(nanos);
+    }
+
+    @Override
+    public void guessChosen (String guess, long distanceComputations) {
+        selectionComputations.record(distanceComputations);
+    }
+
+    @Override
+    public void candidatesFiltered (String guess, int remaining, long distanceComputations) {
+        candidatesRemaining.record(remaining);
+        filterComputations.record(distanceComputations);
+    }
+
+    @Override
+    public void gameEnded (boolean won, int guesses) {
+        if (won) {
+            gamesWon.increment();
+        }
+    }
+
+
+    // -----------------------------------------------
+    // Management
+    // -----------------------------------------------
+
+    @Override
+    public long getGamesStarted () {
+        return gamesStarted.sum();
+    }
+
+    @Override
+    public long getGamesWon () {
+        return gamesWon.sum();
+    }
+
+    @Override
+    public double getWinRate () {
+        long started = getGamesStarted();
+        return (started == 0) ? 0 : (double) getGamesWon() / started;
+    }
+
+    @Override
+    public long getGuesses () {
+        return guessNanos.count();
+    }
+
+    @Override
+    public double getMeanGuessMillis () {
+        return guessNanos.mean() / 1e6;
+    }
+
+    @Override
+    public double getP50GuessMillis () {
+        return guessNanos.percentile(50) / 1e6;
+    }
+
+    @Override
+    public double getP99GuessMillis () {
+        return guessNanos.percentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMeanFeedbackMillis () {
+        return feedbackNanos.mean() / 1e6;
+    }
+
+    @Override
+    public double getP99FeedbackMillis () {
+        return feedbackNanos.percentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMeanCandidatesRemaining () {
+        return candidatesRemaining.mean();
+    }
+
+    @Override
+    public long getP50CandidatesRemaining () {
+        return candidatesRemaining.percentile(50);
+    }
+
+    @Override
+    public double getMeanSelectionComputations () {
+        return selectionComputations.mean();
+    }
+
+    @Override
+    public double getMeanFilterComputations () {
+        return filterComputations.mean();
+    }
+
+    @Override
+    public void reset () {
+        gamesStarted.reset();
+        gamesWon.reset();
+        guessNanos.reset();
+        feedbackNanos.reset();
+        candidatesRemaining.reset();
+        selectionComputations.reset();
+        filterComputations.reset();
+    }
+
+    /**
+     * Thread-safe histogram of non-negative values in power-of-two buckets:
+     * bucket b counts the values whose highest set bit is bit b - 1, with 0
+     * in bucket 0.
+     */
+    private static class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[65];
+        private final LongAdder count = new LongAdder(), sum = new LongAdder();
+
+        Histogram () {
+            for (int b = 0; b < buckets.length; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        void record (long value) {
+            buckets[64 - Long.numberOfLeadingZeros(Math.max(0, value))].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        long count () {
+            return count.sum();
+        }
+
+        double mean () {
+            long n = count.sum();
+            return (n == 0) ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile,
+         * or 0 if nothing was recorded.
+         */
+        long percentile (double percentile) {
+            long n = count.sum(), rank = (long) Math.ceil(percentile / 100 * n), seen = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                seen += buckets[b].sum();
+                if (seen >= rank && seen > 0) {
+                    return (b == 0) ? 0 : (b == 64) ? Long.MAX_VALUE : (1L << b) - 1;
+                }
+            }
+            return 0;
+        }
+
+        void reset () {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+        }
+
+    }
+
+}
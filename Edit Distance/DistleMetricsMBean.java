@@ -0,0 +1,41 @@
+/**
+ * DistleMetricsMBean.java
+ */
+
+package main.distle;
+
+/**
+ * JMX management interface of {@link DistleMetrics}. Latencies are in
+ * milliseconds, and percentiles are the upper bounds of power-of-two buckets.
+ */
+public interface DistleMetricsMBean {
+
+    long getGamesStarted ();
+
+    long getGamesWon ();
+
+    double getWinRate ();
+
+    long getGuesses ();
+
+    double getMeanGuessMillis ();
+
+    double getP50GuessMillis ();
+
+    double getP99GuessMillis ();
+
+    double getMeanFeedbackMillis ();
+
+    double getP99FeedbackMillis ();
+
+    double getMeanCandidatesRemaining ();
+
+    long getP50CandidatesRemaining ();
+
+    double getMeanSelectionComputations ();
+
+    double getMeanFilterComputations ();
+
+    void reset ();
+
+}
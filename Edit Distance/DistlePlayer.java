@@ -7,7 +7,10 @@
 package main.distle;
 
 import static main.distle.EditDistanceUtils.*;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 /**
  * AI Distle Player! Contains all logic used to automagically play the game of
@@ -15,9 +18,38 @@ import java.util.*;
  */
 public class DistlePlayer {
     
+    // Below this many candidates, filtering is cheaper on the calling thread
+    // than split across the common fork-join pool
+    private static final int PARALLEL_THRESHOLD = 2048;
+    // Time the GuessSelector may spend choosing each guess
+    private static final long MOVE_BUDGET_MILLIS = 50;
+    // System property naming the opening book file, built by OpeningBook.main
+    private static final String OPENING_BOOK_PROPERTY = "distle.openingBook";
+    // Feedback to a guess is looked up in (and added to) the shared
+    // PartitionCache while at least 1 / PARTITION_FRACTION of the dictionary
+    // remains, when partitioning all of it costs little more than filtering
+    private static final int PARTITION_FRACTION = 4;
+    
     // [!] TODO: Any fields you want here!
-    Set<String> myDict;
-    boolean firstGuess;
+    // The dictionary's words, and the set of indices into them of the words
+    // still consistent with all feedback so far
+    String[] words;
+    CandidateSet candidates;
+    GuessSelector selector;
+    // The dictionary's store and the partitions shared by its games, if the
+    // dictionary came from a DictionaryStore
+    DictionaryStore store;
+    PartitionCache partitions;
+    // The opening book for this game's dictionary, if there is one, and the
+    // round's guess and feedback it is consulted with
+    OpeningBook book;
+    int round;
+    String lastGuess;
+    long lastSignature;
+    // Receives telemetry, if set
+    DistleListener listener;
+    // Seed of each game's GuessSelector sampling, or null for an unseeded one
+    Long seed;
     
     /**
      * Constructs a new DistlePlayer.
@@ -40,8 +72,41 @@ public class DistlePlayer {
      * @param maxGuesses The max number of guesses available to the player.
      */
     public void startNewGame (Set<String> dictionary, int maxGuesses) {
-    	myDict = dictionary;
-        firstGuess = true;
+    	// A store's words are already in an array that every game can share
+    	store = (dictionary instanceof DictionaryStore.WordSet)
+    		? ((DictionaryStore.WordSet) dictionary).getStore() : null;
+    	words = (store != null) ? store.getWords() : dictionary.toArray(new String[0]);
+    	partitions = (store != null) ? PartitionCache.shared(words, store.getFingerprint()) : null;
+    	candidates = new CandidateSet(words.length, true);
+    	selector = new GuessSelector(words, MOVE_BUDGET_MILLIS, (seed == null) ? new Random() : new Random(seed));
+    	round = 0;
+    	String bookPath = System.getProperty(OPENING_BOOK_PROPERTY);
+    	book = (bookPath == null) ? null : OpeningBook.get(Paths.get(bookPath));
+    	if (book != null && !book.matches((store != null) ? store.getFingerprint() : OpeningBook.fingerprint(words))) {
+    		book = null;
+    	}
+    }
+    
+    /**
+     * Sets the listener to report the work behind each guess and filtering
+     * to; with none set (the default), nothing is reported.
+     * 
+     * @param listener The listener, or null for none
+     */
+    public void setListener (DistleListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Seeds the random sampling behind the guesses of every following game,
+     * which is otherwise unseeded. Guesses are still chosen within a
+     * wall-clock budget, so how many are scored, and so which is made, can
+     * still vary with the machine's load.
+     * 
+     * @param seed Seed of each game's sampling
+     */
+    public void setSeed (long seed) {
+        this.seed = seed;
     }
     
     /**
@@ -51,11 +116,26 @@ public class DistlePlayer {
      * @return The next guess from this DistlePlayer.
      */
     public String makeGuess () {
-    	if (firstGuess) {
-    		return "weatherproofed";
-        } else {
-        	return (String)myDict.toArray()[(int)((Math.floor(Math.random() * myDict.size())))];
-        }
+    	if (book != null) {
+    		String guess = null;
+    		if (round == 0) {
+    			guess = book.getFirstGuess();
+    		} else if (round == 1 && lastGuess.equals(book.getFirstGuess())) {
+    			guess = book.getSecondGuess(lastSignature);
+    		}
+    		if (guess != null) {
+    			if (listener != null) {
+    				listener.guessChosen(guess, 0);
+    			}
+    			return guess;
+    		}
+    	}
+    	long computations = selector.getComputations();
+    	String guess = words[selector.selectGuess(candidates.toArray())];
+    	if (listener != null) {
+    		listener.guessChosen(guess, selector.getComputations() - computations);
+    	}
+    	return guess;
     }
     
     /**
@@ -74,15 +154,57 @@ public class DistlePlayer {
      * @param transforms List of top-down transforms needed to turn the guess into the secret word
      */
     public void getFeedback (String guess, int editDistance, List<String> transforms) {
-    	Set<String> newDict = new TreeSet<String>();
-        for (String word : myDict) {
-        	List<String> tList = getTransformationList(guess, word, getEditDistTable(guess, word));
-        	if (tList.equals(transforms)) {
-        		newDict.add(word);
-        	}
-        }
-        myDict = newDict;
-        firstGuess = false;
+    	long signature = getTransformationSignature(transforms);
+    	int remaining = candidates.cardinality();
+    	int guessIndex = (partitions != null && isExactSignature(signature)) ? store.indexOf(guess) : -1;
+    	// Counts the edit distances and signatures computed, if they are reported
+    	LongAdder computations = (listener != null) ? new LongAdder() : null;
+    	if (guessIndex >= 0 && (partitions.isCached(guessIndex) || remaining * PARTITION_FRACTION >= words.length)) {
+    		candidates.retainAll(partitions.getPartition(guessIndex, signature, computations));
+    	} else {
+    		IntStream survivors = IntStream.of(candidates.toArray());
+    		if (remaining >= PARALLEL_THRESHOLD) {
+    			survivors = survivors.parallel();
+    		}
+    		candidates = new CandidateSet(words.length, survivors
+    			.filter(i -> isConsistent(words[i], guess, editDistance, transforms, signature, computations))
+    			.toArray());
+    	}
+    	if (listener != null) {
+    		listener.candidatesFiltered(guess, candidates.cardinality(), computations.sum());
+    	}
+        lastGuess = guess;
+        lastSignature = signature;
+        round++;
+    }
+    
+    /**
+     * Determines whether the given word could be the secret word, given the
+     * feedback from a guess.
+     * 
+     * @param word Candidate for the secret word
+     * @param guess The incorrect guess the feedback is for
+     * @param editDistance Numerical distance between the guess and the secret word
+     * @param transforms List of top-down transforms needed to turn the guess into the secret word
+     * @param signature Transformation signature of the transforms
+     * @param computations Counter of the edit distances and signatures
+     * computed, or null
+     * @return true if the guess relates to the word exactly as the feedback says
+     */
+    private static boolean isConsistent (String word, String guess, int editDistance, List<String> transforms, long signature, LongAdder computations) {
+    	// Every transform costs 1, so only words at the same distance can
+    	// match; checking that first needs no table allocation
+    	boolean sameDistance = editDistanceWithin(guess, word, editDistance) == editDistance;
+    	if (computations != null) {
+    		computations.add(sameDistance ? 2 : 1);
+    	}
+    	if (!sameDistance) {
+    		return false;
+    	}
+    	if (isExactSignature(signature)) {
+    		return getTransformationSignature(guess, word) == signature;
+    	}
+    	return getTransformationList(guess, word).equals(transforms);
     }
     
 }
@@ -0,0 +1,237 @@
+/**
+ * DistleSimulator.java
+ */
+
+package main.distle;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Plays many seeded games of Distle concurrently, without any console input
+ * or output, to measure how well a DistlePlayer plays: its win rate, the
+ * number of guesses its wins take, and how long it takes to make each guess.
+ */
+public class DistleSimulator {
+
+    /**
+     * Plays the given number of games, each with its own DistlePlayer, on a
+     * fixed pool of threads that share the dictionary. Game i picks its secret
+     * word, and seeds its player's sampling, with seed + i. A run is not
+     * exactly reproducible, though: the player chooses each guess within a
+     * wall-clock budget, so the guesses it can score, and so those it makes,
+     * vary with the thread count and the machine's load.
+     *
+     * @param store The dictionary, shared by every game
+     * @param players Supplier of a new DistlePlayer for each game
+     * @param games The number of games to play
+     * @param maxGuesses The max number of guesses in each game
+     * @param threads The number of games to play at once
+     * @param seed Seed of the first game's secret word and player
+     * @return The results of all of the games
+     * @throws InterruptedException If interrupted while waiting for the games
+     */
+    public static Report simulate (DictionaryStore store, Supplier<? extends DistlePlayer> players,
+            int games, int maxGuesses, int threads, int seed) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<GameResult>> tasks = new ArrayList<>(games);
+            for (int i = 0; i < games; i++) {
+                int gameSeed = seed + i;
+                tasks.add(() -> play(store, players.get(), maxGuesses, gameSeed));
+            }
+            Report report = new Report(maxGuesses);
+            for (Future<GameResult> result : pool.invokeAll(tasks)) {
+                try {
+                    report.add(result.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A simulated game failed", e.getCause());
+                }
+            }
+            return report;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static GameResult play (DictionaryStore store, DistlePlayer player, int maxGuesses, int seed) {
+        TimedPlayer timed = new TimedPlayer(player, maxGuesses);
+        timed.setSeed(seed);
+        DistleGame game = new DistleGame(store, false, timed, seed);
+        game.newGame(maxGuesses);
+        return new GameResult(game.wonGame(), game.getGuesses(), Arrays.copyOf(timed.latencies, timed.moves));
+    }
+
+    /**
+     * Plays a batch of games with the default DistlePlayer and prints the report.
+     *
+     * @param args The dictionary file, and optionally the number of games
+     * (default 1000), of threads (default one per processor) and the seed
+     * (default 0)
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main (String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: DistleSimulator <dictionary> [games] [threads] [seed]");
+            System.exit(1);
+        }
+        DictionaryStore store = DictionaryStore.load(Paths.get(args[0]));
+        int games = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int seed = (args.length > 3) ? Integer.parseInt(args[3]) : 0;
+        System.out.println(simulate(store, DistlePlayer::new, games, 10, threads, seed));
+    }
+
+
+    // -----------------------------------------------
+    // Results
+    // -----------------------------------------------
+
+    /**
+     * Outcome of a single simulated game, with the time taken by each guess.
+     */
+    private static class GameResult {
+
+        final boolean won;
+        final int guesses;
+        final long[] latencies;
+
+        GameResult (boolean won, int guesses, long[] latencies) {
+            this.won = won;
+            this.guesses = guesses;
+            this.latencies = latencies;
+        }
+
+    }
+
+    /**
+     * Aggregate results of a batch of simulated games.
+     */
+    public static class Report {
+
+        private int games, wins;
+        // Number of won games by the number of guesses they took
+        private final int[] guessCounts;
+        private long[] latencies = new long[64];
+        private int moves;
+
+        Report (int maxGuesses) {
+            guessCounts = new int[maxGuesses + 1];
+        }
+
+        private void add (GameResult result) {
+            games++;
+            if (result.won) {
+                wins++;
+                guessCounts[result.guesses]++;
+            }
+            if (moves + result.latencies.length > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, moves + result.latencies.length));
+            }
+            System.arraycopy(result.latencies, 0, latencies, moves, result.latencies.length);
+            moves += result.latencies.length;
+        }
+
+        /**
+         * @return The fraction of the games that were won
+         */
+        public double getWinRate () {
+            return (games == 0) ? 0 : (double) wins / games;
+        }
+
+        /**
+         * @return The number of won games by the number of guesses they took
+         */
+        public int[] getGuessCounts () {
+            return guessCounts.clone();
+        }
+
+        /**
+         * Returns the given percentile of the time the player took to make a guess
+         * and process its feedback.
+         *
+         * @param percentile Percentile between 0 and 100
+         * @return The latency at that percentile in nanoseconds, or 0 if no
+         * guesses were made
+         */
+        public long getLatencyPercentile (double percentile) {
+            if (moves == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, moves);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * moves) - 1;
+            return sorted[Math.max(0, Math.min(moves - 1, rank))];
+        }
+
+        @Override
+        public String toString () {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("Won %d / %d games (%.2f%%)%n", wins, games, 100 * getWinRate()));
+            for (int guesses = 1; guesses < guessCounts.length; guesses++) {
+                report.append(String.format("  %2d guesses: %d%n", guesses, guessCounts[guesses]));
+            }
+            report.append(String.format("Guess latency p50 %.3f ms, p99 %.3f ms over %d guesses",
+                    getLatencyPercentile(50) / 1e6, getLatencyPercentile(99) / 1e6, moves));
+            return report.toString();
+        }
+
+    }
+
+
+    // -----------------------------------------------
+    // Timing
+    // -----------------------------------------------
+
+    /**
+     * DistlePlayer that plays as the one it wraps while timing each guess,
+     * including the time it then takes to process the feedback to it.
+     */
+    private static class TimedPlayer extends DistlePlayer {
+
+        private final DistlePlayer player;
+        private final long[] latencies;
+        private int moves;
+
+        TimedPlayer (DistlePlayer player, int maxGuesses) {
+            this.player = player;
+            this.latencies = new long[maxGuesses];
+        }
+
+        @Override
+        public void startNewGame (Set<String> dictionary, int maxGuesses) {
+            player.startNewGame(dictionary, maxGuesses);
+        }
+
+        @Override
+        public void setSeed (long seed) {
+            player.setSeed(seed);
+        }
+
+        @Override
+        public void setListener (DistleListener listener) {
+            player.setListener(listener);
+        }
+
+        @Override
+        public String makeGuess () {
+            long start = System.nanoTime();
+            String guess = player.makeGuess();
+            latencies[moves++] = System.nanoTime() - start;
+            return guess;
+        }
+
+        @Override
+        public void getFeedback (String guess, int editDistance, List<String> transforms) {
+            long start = System.nanoTime();
+            player.getFeedback(guess, editDistance, transforms);
+            latencies[moves - 1] += System.nanoTime() - start;
+        }
+
+    }
+
+}
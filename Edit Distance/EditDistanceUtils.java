@@ -107,6 +107,252 @@ public class EditDistanceUtils {
         return ret;
     }
     
+    // Transformation signatures pack each manipulation into 2 bits, in
+    // top-down order from the lowest bits up, beneath a 6-bit count of them;
+    // sequences too long to pack keep SIGNATURE_OVERFLOW as their count and
+    // a hash of the sequence beneath it
+    private static final int OP_R = 0, OP_T = 1, OP_I = 2, OP_D = 3;
+    private static final int SIGNATURE_OPS = 29, COUNT_SHIFT = 58;
+    private static final long SIGNATURE_OVERFLOW = 63;
+    
+    /**
+     * Returns the transformation signature of the sequence of manipulations
+     * that {@link #getTransformationList(String, String)} would return for the
+     * given strings: a single long that, for sequences of up to 29
+     * manipulations, encodes the sequence exactly (see
+     * {@link #isExactSignature(long)}). The table is computed in reusable
+     * scratch space and traced with the same tie-breaking, so no lists or
+     * Strings are created.
+     * 
+     * @param s0 String transforming into other
+     * @param s1 Target of transformation
+     * @return The transformation signature of turning s0 into s1
+     */
+    public static long getTransformationSignature (String s0, String s1) {
+        int m = s0.length(), n = s1.length(), width = n + 1;
+        int[] d = SCRATCH.get().table((m + 1) * width);
+        fillEditDistTable(s0, s1, d);
+        return traceSignature(s0, s1, d, width, 1);
+    }
+    
+    /**
+     * Traces the transformation signature of turning s0 into s1 through a
+     * filled memoization structure whose cell (i, j) is at
+     * d[i * iStride + j * jStride], with the same tie-breaking as
+     * getTransformationList.
+     */
+    private static long traceSignature (String s0, String s1, int[] d, int iStride, int jStride) {
+        int i = s0.length(), j = s1.length();
+        SignatureBuilder signature = new SignatureBuilder();
+        while (i > 0 && j > 0) {
+            int cell = i * iStride + j * jStride, score = d[cell];
+            int diagonal = cell - iStride - jStride;
+            if (d[diagonal] == score && s0.charAt(i-1) == s1.charAt(j-1)) {
+                i--;
+                j--;
+            } else if (d[diagonal] == score-1 && s0.charAt(i-1) != s1.charAt(j-1)) {
+                signature.add(OP_R);
+                i--;
+                j--;
+            } else if (i > 1 && j > 1 && d[diagonal - iStride - jStride] == score-1 && s0.charAt(i-1) == s1.charAt(j-2) && s1.charAt(j-1) == s0.charAt(i-2)) {
+                signature.add(OP_T);
+                i -= 2;
+                j -= 2;
+            } else if (d[cell - jStride] == score-1) {
+                signature.add(OP_I);
+                j--;
+            } else {
+                signature.add(OP_D);
+                i--;
+            }
+        }
+        for (; j > 0; j--) {
+            signature.add(OP_I);
+        }
+        for (; i > 0; i--) {
+            signature.add(OP_D);
+        }
+        return signature.build();
+    }
+    
+    /**
+     * See {@link #getTransformationSignature(String s0, String s1)}. Computes
+     * the signature of turning the query into each of the words in the given
+     * range, sharing work between them: the memoization structure is laid
+     * out with a row per prefix of the word, so the rows for the prefix a word
+     * shares with the previous one are kept, as on a walk down a trie of the
+     * words. Words in sorted order share the most.
+     * 
+     * @param query String transforming into each word
+     * @param words Targets of transformation
+     * @param from Index of the first word
+     * @param to Index after the last word
+     * @param signatures Receives the signature for words[i] at index i - from
+     */
+    public static void getTransformationSignatures (String query, String[] words, int from, int to, long[] signatures) {
+        sharedPrefixSignatures(query, words, null, from, to, signatures);
+    }
+    
+    /**
+     * See {@link #getTransformationSignatures(String query, String[] words, int from, int to, long[] signatures)}.
+     * Computes the signatures for the words at the given indices, which share
+     * the most work in ascending order.
+     * 
+     * @param query String transforming into each word
+     * @param words Targets of transformation
+     * @param indices Indices of the words
+     * @param signatures Receives the signature for words[indices[k]] at index k
+     */
+    public static void getTransformationSignatures (String query, String[] words, int[] indices, long[] signatures) {
+        sharedPrefixSignatures(query, words, indices, 0, indices.length, signatures);
+    }
+    
+    private static void sharedPrefixSignatures (String query, String[] words, int[] indices, int from, int to, long[] signatures) {
+        int width = query.length() + 1, maxLength = 0;
+        for (int k = from; k < to; k++) {
+            maxLength = Math.max(maxLength, words[(indices == null) ? k : indices[k]].length());
+        }
+        int[] d = SCRATCH.get().table((maxLength + 1) * width);
+        for (int b = 0; b < width; b++) {
+            d[b] = b;
+        }
+        // Row a holds the distances from the query's prefixes to the first a
+        // characters of the word, and is valid for the previous word up to
+        // the row of its length
+        String previous = "";
+        for (int k = from; k < to; k++) {
+            String word = words[(indices == null) ? k : indices[k]];
+            int shared = 0, limit = Math.min(previous.length(), word.length());
+            while (shared < limit && previous.charAt(shared) == word.charAt(shared)) {
+                shared++;
+            }
+            for (int a = shared + 1; a <= word.length(); a++) {
+                fillTransposedRow(query, word, a, d, width);
+            }
+            // The distance is symmetric, so cell (i, j) for query and word
+            // lies at row j and column i
+            signatures[k - from] = traceSignature(query, word, d, 1, width);
+            previous = word;
+        }
+    }
+    
+    /**
+     * Fills row a of a memoization structure for the OSA distance between
+     * prefixes of the word (by row) and of the query (by column).
+     */
+    private static void fillTransposedRow (String query, String word, int a, int[] d, int width) {
+        int row = a * width, above = row - width;
+        char c = word.charAt(a-1);
+        d[row] = a;
+        for (int b = 1; b < width; b++) {
+            int cell = Math.min(
+                (c == query.charAt(b-1) ? 0 : 1) + d[above + b-1],
+                Math.min(d[row + b-1] + 1, d[above + b] + 1));
+            if (a > 1 && b > 1 && word.charAt(a-2) == query.charAt(b-1) && query.charAt(b-2) == c) {
+                cell = Math.min(cell, d[above - width + b-2] + 1);
+            }
+            d[row + b] = cell;
+        }
+    }
+    
+    /**
+     * Returns the transformation signature of the given list of
+     * manipulations, as returned by getTransformationList, such that it equals
+     * the signature computed by {@link #getTransformationSignature(String, String)}
+     * for the same sequence.
+     * 
+     * @param transforms List of "R", "T", "I" and "D" manipulations
+     * @return The transformation signature of the list
+     */
+    public static long getTransformationSignature (List<String> transforms) {
+        SignatureBuilder signature = new SignatureBuilder();
+        for (String transform : transforms) {
+            switch (transform) {
+                case "R": signature.add(OP_R); break;
+                case "T": signature.add(OP_T); break;
+                case "I": signature.add(OP_I); break;
+                case "D": signature.add(OP_D); break;
+                default: throw new IllegalArgumentException("Unknown transform " + transform);
+            }
+        }
+        return signature.build();
+    }
+    
+    /**
+     * Determines whether the given transformation signature encodes its
+     * sequence exactly, in which case equal signatures mean equal sequences;
+     * otherwise the sequence was too long to pack and equal signatures only
+     * make equal sequences very likely.
+     * 
+     * @param signature A transformation signature
+     * @return true if the signature is exact, false if it is a hash
+     */
+    public static boolean isExactSignature (long signature) {
+        return (signature >>> COUNT_SHIFT) != SIGNATURE_OVERFLOW;
+    }
+    
+    /**
+     * Returns the number of manipulations in the sequence behind an exact
+     * transformation signature, which is also the edit distance it came from.
+     * 
+     * @param signature An exact transformation signature
+     * @return The number of manipulations it encodes
+     */
+    public static int getSignatureLength (long signature) {
+        return (int) (signature >>> COUNT_SHIFT);
+    }
+    
+    /**
+     * Accumulates manipulations into a transformation signature.
+     */
+    private static class SignatureBuilder {
+        
+        private long ops, hash = 0xcbf29ce484222325L;
+        private int count;
+        
+        void add (int op) {
+            if (count < SIGNATURE_OPS) {
+                ops |= (long) op << (2 * count);
+            }
+            hash = (hash ^ op) * 0x100000001b3L;
+            count++;
+        }
+        
+        long build () {
+            if (count <= SIGNATURE_OPS) {
+                return ((long) count << COUNT_SHIFT) | ops;
+            }
+            return (SIGNATURE_OVERFLOW << COUNT_SHIFT) | (hash & ((1L << COUNT_SHIFT) - 1));
+        }
+        
+    }
+    
+    /**
+     * Fills the given flat array, in row-major order with rows of
+     * s1.length() + 1 cells, with the same memoization structure as
+     * getEditDistTable.
+     */
+    private static void fillEditDistTable (String s0, String s1, int[] d) {
+        int m = s0.length(), n = s1.length(), width = n + 1;
+        for (int i = 0; i <= m; i++) {
+            d[i * width] = i;
+        }
+        for (int j = 1; j <= n; j++) {
+            d[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            for (int j = 1; j <= n; j++) {
+                int cell = Math.min(
+                    (s0.charAt(i-1) == s1.charAt(j-1) ? 0 : 1) + d[(i-1) * width + j-1],
+                    Math.min(d[i * width + j-1] + 1, d[(i-1) * width + j] + 1));
+                if (i > 1 && j > 1 && s0.charAt(i-2) == s1.charAt(j-1) && s1.charAt(j-2) == s0.charAt(i-1)) {
+                    cell = Math.min(cell, d[(i-2) * width + j-2] + 1);
+                }
+                d[i * width + j] = cell;
+            }
+        }
+    }
+    
     /**
      * Returns the edit distance between the two given strings: an int
      * representing the number of String manipulations (Insertions, Deletions,
@@ -119,7 +365,405 @@ public class EditDistanceUtils {
      */
     public static int editDistance (String s0, String s1) {
         if (s0.equals(s1)) { return 0; }
-        return getEditDistTable(s0, s1)[s0.length()][s1.length()];
+        // The distance is symmetric, so the shorter string serves as the
+        // bit-vector "pattern" to minimize the number of 64-bit blocks
+        return (s0.length() <= s1.length()) ? bitParallelDistance(s0, s1) : bitParallelDistance(s1, s0);
+    }
+    
+    /**
+     * See {@link #editDistance(String s0, String s1)}. Computes the distance
+     * from the query to each of the words in the given range, building the
+     * query's bit-vector match table once for all of them.
+     * 
+     * @param query String to transform into each word
+     * @param words Targets of transformation
+     * @param from Index of the first word
+     * @param to Index after the last word
+     * @param distances Receives the distance to words[i] at index i - from
+     */
+    public static void editDistances (String query, String[] words, int from, int to, int[] distances) {
+        int m = query.length();
+        if (m == 0) {
+            for (int k = from; k < to; k++) {
+                distances[k - from] = words[k].length();
+            }
+            return;
+        }
+        int blocks = (m + 63) >>> 6;
+        Scratch scratch = SCRATCH.get();
+        long[] peq = scratch.peq(blocks);
+        for (int i = 0; i < m; i++) {
+            char c = query.charAt(i);
+            if (c < Scratch.PEQ_CHARS) {
+                peq[c * blocks + (i >>> 6)] |= 1L << i;
+            }
+        }
+        
+        for (int k = from; k < to; k++) {
+            String word = words[k];
+            if (word.isEmpty()) {
+                distances[k - from] = m;
+            } else {
+                distances[k - from] = (blocks == 1) ? singleBlockDistance(query, word, peq)
+                                                    : multiBlockDistance(query, word, peq, blocks, scratch);
+            }
+        }
+        
+        for (int i = 0; i < m; i++) {
+            char c = query.charAt(i);
+            if (c < Scratch.PEQ_CHARS) {
+                peq[c * blocks + (i >>> 6)] = 0;
+            }
+        }
+    }
+    
+    /**
+     * Determines whether the edit distance between the given strings is at
+     * most k, computing only the cells of the memoization structure within k
+     * of its diagonal (those farther off can never lie on a path of cost k or
+     * less), and stopping as soon as a whole row of that band exceeds k.
+     * 
+     * @param s0 String to transform into other
+     * @param s1 Target of transformation
+     * @param k The largest distance of interest
+     * @return The edit distance between s0 and s1 if it is at most k, or
+     * k+1 ("too far") otherwise
+     */
+    public static int editDistanceWithin (String s0, String s1, int k) {
+        return editDistanceWithin(s0, s1, k, SCRATCH.get().rows(3 * (s1.length() + 1)));
+    }
+    
+    /**
+     * See {@link #editDistanceWithin(String s0, String s1, int k)}. Works in the
+     * given scratch buffer, which must hold at least 3 * (s1.length() + 1) ints.
+     */
+    public static int editDistanceWithin (String s0, String s1, int k, int[] scratch) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative");
+        }
+        if (scratch.length < 3 * (s1.length() + 1)) {
+            throw new IllegalArgumentException("Scratch buffer must hold 3 * (s1.length() + 1) ints");
+        }
+        int m = s0.length(), n = s1.length();
+        if (Math.abs(m - n) > k) { return k + 1; }
+        if (s0.equals(s1)) { return 0; }
+        // No distance exceeds the longer length, so a larger k (up to
+        // Integer.MAX_VALUE for "no limit") only widens the band past the table
+        k = Math.min(k, Math.max(m, n));
+        
+        // Three rolling rows of the table (transpositions look two rows back);
+        // cells beyond the band read as "too far"
+        int tooFar = k + 1, width = n + 1;
+        int[] rows = scratch;
+        int previous2 = 0, previous = width, current = 2 * width;
+        for (int j = 0; j <= Math.min(n, k); j++) {
+            rows[previous + j] = j;
+        }
+        if (k < n) {
+            rows[previous + k + 1] = tooFar;
+        }
+        
+        for (int i = 1; i <= m; i++) {
+            int lo = Math.max(0, i - k), hi = Math.min(n, i + k);
+            int rowMin = tooFar;
+            if (lo > 0) {
+                rows[current + lo - 1] = tooFar;
+            } else {
+                rows[current] = i;
+                rowMin = i;
+                lo = 1;
+            }
+            for (int j = lo; j <= hi; j++) {
+                int d = Math.min(
+                    (s0.charAt(i-1) == s1.charAt(j-1) ? 0 : 1) + rows[previous + j - 1],
+                    Math.min(rows[current + j - 1] + 1, rows[previous + j] + 1));
+                if (i > 1 && j > 1 && s0.charAt(i-2) == s1.charAt(j-1) && s1.charAt(j-2) == s0.charAt(i-1)) {
+                    d = Math.min(d, rows[previous2 + j - 2] + 1);
+                }
+                d = Math.min(d, tooFar);
+                rows[current + j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (hi < n) {
+                rows[current + hi + 1] = tooFar;
+            }
+            if (rowMin > k) {
+                return tooFar;
+            }
+            int recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return rows[previous + n];
+    }
+    
+    /**
+     * See {@link #editDistance(String s0, String s1)}. Computes the distance by
+     * the same recurrence as getEditDistTable, but keeps only the three most
+     * recent rows of the table in the given scratch buffer, so that callers
+     * computing many distances can do so without allocating.
+     * 
+     * @param s0 String to transform into other
+     * @param s1 Target of transformation
+     * @param scratch Buffer of at least 3 * (s1.length() + 1) ints, whose
+     * contents are overwritten
+     * @return The minimal number of manipulations required to turn s0 into s1
+     */
+    public static int editDistance (String s0, String s1, int[] scratch) {
+        return editDistanceWithin(s0, s1, Math.max(s0.length(), s1.length()), scratch);
+    }
+    
+    /**
+     * Returns the unrestricted Damerau-Levenshtein distance between the two
+     * given strings, in which, unlike in {@link #editDistance(String, String)},
+     * transposed characters may be edited again (turning "ca" into "abc"
+     * costs 2 rather than 3). This distance is a metric, obeying the triangle
+     * inequality, and never exceeds editDistance, so it can index words for
+     * queries on editDistance.
+     * 
+     * @param s0 String to transform into other
+     * @param s1 Target of transformation
+     * @return The unrestricted Damerau-Levenshtein distance from s0 to s1
+     */
+    public static int damerauLevenshteinDistance (String s0, String s1) {
+        int m = s0.length(), n = s1.length(), width = n + 2, infinity = m + n;
+        Scratch scratch = SCRATCH.get();
+        int[] d = scratch.table((m + 2) * width);
+        // The last row in which each character of s0 appeared
+        int[] lastRow = scratch.lastRow();
+        
+        d[0] = infinity;
+        for (int i = 0; i <= m; i++) {
+            d[(i+1) * width] = infinity;
+            d[(i+1) * width + 1] = i;
+        }
+        for (int j = 0; j <= n; j++) {
+            d[j+1] = infinity;
+            d[width + j+1] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            char c0 = s0.charAt(i-1);
+            int above = i * width, row = above + width;
+            // The last column in this row in which the characters matched
+            int lastMatch = 0;
+            for (int j = 1; j <= n; j++) {
+                char c1 = s1.charAt(j-1);
+                int k = lastRow[c1], l = lastMatch, cell;
+                if (c0 == c1) {
+                    cell = d[above + j];
+                    lastMatch = j;
+                } else {
+                    cell = Math.min(d[above + j], Math.min(d[row + j], d[above + j+1])) + 1;
+                }
+                // Transposing c1 with the last match of its row, deleting
+                // and inserting whatever lies between
+                d[row + j+1] = Math.min(cell, d[k * width + l] + (i-k-1) + 1 + (j-l-1));
+            }
+            lastRow[c0] = i;
+        }
+        
+        for (int i = 0; i < m; i++) {
+            lastRow[s0.charAt(i)] = 0;
+        }
+        return d[(m+1) * width + n+1];
+    }
+    
+    // Scratch space reused by each thread's distance computations
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    
+    /**
+     * Computes the same distance as getEditDistTable (optimal string alignment,
+     * i.e. Damerau-Levenshtein without edits to transposed characters) with
+     * Hyyro's bit-parallel algorithm, without building the table. Each column
+     * of the table (one per character of text) is kept as bit-vectors of the
+     * vertical differences between adjacent cells, packed 64 rows per long,
+     * and advanced with a handful of word operations per block.
+     * 
+     * @param pattern String spanning the rows of the table
+     * @param text String spanning the columns of the table
+     * @return The edit distance between pattern and text
+     */
+    static int bitParallelDistance (String pattern, String text) {
+        int m = pattern.length(), n = text.length();
+        if (m == 0) { return n; }
+        if (n == 0) { return m; }
+        
+        int blocks = (m + 63) >>> 6;
+        Scratch scratch = SCRATCH.get();
+        long[] peq = scratch.peq(blocks);
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < Scratch.PEQ_CHARS) {
+                peq[c * blocks + (i >>> 6)] |= 1L << i;
+            }
+        }
+        
+        int distance = (blocks == 1) ? singleBlockDistance(pattern, text, peq)
+                                     : multiBlockDistance(pattern, text, peq, blocks, scratch);
+        
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < Scratch.PEQ_CHARS) {
+                peq[c * blocks + (i >>> 6)] = 0;
+            }
+        }
+        return distance;
+    }
+    
+    private static int singleBlockDistance (String pattern, String text, long[] peq) {
+        int m = pattern.length();
+        long last = 1L << (m - 1);
+        long vp = -1L, vn = 0, d0 = 0, pmPrev = 0;
+        int distance = m;
+        for (int j = 0; j < text.length(); j++) {
+            long pm = matchVector(pattern, text.charAt(j), peq, 1, 0);
+            long tr = (((~d0) & pm) << 1) & pmPrev;
+            d0 = (((pm & vp) + vp) ^ vp) | pm | vn | tr;
+            long hp = vn | ~(d0 | vp);
+            long hn = d0 & vp;
+            if ((hp & last) != 0) {
+                distance++;
+            } else if ((hn & last) != 0) {
+                distance--;
+            }
+            long hpShift = (hp << 1) | 1;
+            vp = (hn << 1) | ~(d0 | hpShift);
+            vn = d0 & hpShift;
+            pmPrev = pm;
+        }
+        return distance;
+    }
+    
+    private static int multiBlockDistance (String pattern, String text, long[] peq, int blocks, Scratch scratch) {
+        int m = pattern.length();
+        long last = 1L << ((m - 1) & 63);
+        long[] vp = scratch.vp, vn = scratch.vn, d0 = scratch.d0, pmPrev = scratch.pmPrev;
+        Arrays.fill(vp, 0, blocks, -1L);
+        Arrays.fill(vn, 0, blocks, 0);
+        Arrays.fill(d0, 0, blocks, 0);
+        Arrays.fill(pmPrev, 0, blocks, 0);
+        int distance = m;
+        for (int j = 0; j < text.length(); j++) {
+            char c = text.charAt(j);
+            // Carries between blocks: the transposition and addition carries,
+            // and the bits shifted out of the horizontal deltas (row 0 of the
+            // table always grows by 1, hence hpCarry starts at 1)
+            long trCarry = 0, addCarry = 0, hpCarry = 1, hnCarry = 0;
+            for (int b = 0; b < blocks; b++) {
+                long pm = matchVector(pattern, c, peq, blocks, b);
+                long x = (~d0[b]) & pm;
+                long tr = ((x << 1) | trCarry) & pmPrev[b];
+                trCarry = x >>> 63;
+                
+                long eq = pm & vp[b];
+                long sum = eq + vp[b] + addCarry;
+                addCarry = ((eq & vp[b]) | ((eq | vp[b]) & ~sum)) >>> 63;
+                
+                long d = (sum ^ vp[b]) | pm | vn[b] | tr;
+                long hp = vn[b] | ~(d | vp[b]);
+                long hn = d & vp[b];
+                if (b == blocks - 1) {
+                    if ((hp & last) != 0) {
+                        distance++;
+                    } else if ((hn & last) != 0) {
+                        distance--;
+                    }
+                }
+                long hpShift = (hp << 1) | hpCarry;
+                long hnShift = (hn << 1) | hnCarry;
+                hpCarry = hp >>> 63;
+                hnCarry = hn >>> 63;
+                vp[b] = hnShift | ~(d | hpShift);
+                vn[b] = d & hpShift;
+                d0[b] = d;
+                pmPrev[b] = pm;
+            }
+        }
+        return distance;
+    }
+    
+    /**
+     * Returns the bits of the given 64-row block of the pattern at which c
+     * occurs, from the precomputed table for common characters or by scanning
+     * the pattern otherwise.
+     */
+    private static long matchVector (String pattern, char c, long[] peq, int blocks, int block) {
+        if (c < Scratch.PEQ_CHARS) {
+            return peq[c * blocks + block];
+        }
+        long pm = 0;
+        for (int i = block << 6; i < Math.min(pattern.length(), (block + 1) << 6); i++) {
+            if (pattern.charAt(i) == c) {
+                pm |= 1L << i;
+            }
+        }
+        return pm;
+    }
+    
+    /**
+     * Per-thread scratch buffers, grown on demand and reused across calls so
+     * that distance computations allocate nothing in the steady state.
+     */
+    private static class Scratch {
+        
+        // Characters below this get a precomputed match vector
+        static final int PEQ_CHARS = 256;
+        
+        private long[] peq = new long[PEQ_CHARS];
+        long[] vp = new long[1], vn = new long[1], d0 = new long[1], pmPrev = new long[1];
+        private int[] rows = new int[64];
+        private int[] table = new int[256];
+        private int[] lastRow;
+        
+        /**
+         * Returns a table, indexed by character, that is zero for every
+         * character and must be left so by its user.
+         */
+        int[] lastRow () {
+            if (lastRow == null) {
+                lastRow = new int[Character.MAX_VALUE + 1];
+            }
+            return lastRow;
+        }
+        
+        /**
+         * Returns an int buffer of at least the given length for a flattened
+         * memoization structure, with arbitrary contents.
+         */
+        int[] table (int length) {
+            if (table.length < length) {
+                table = new int[Math.max(length, table.length * 2)];
+            }
+            return table;
+        }
+        
+        /**
+         * Returns an int buffer of at least the given length, with arbitrary
+         * contents.
+         */
+        int[] rows (int length) {
+            if (rows.length < length) {
+                rows = new int[Math.max(length, rows.length * 2)];
+            }
+            return rows;
+        }
+        
+        /**
+         * Returns a zeroed match-vector table with room for the given number
+         * of blocks per character.
+         */
+        long[] peq (int blocks) {
+            if (peq.length < PEQ_CHARS * blocks) {
+                peq = new long[PEQ_CHARS * blocks];
+                vp = new long[blocks];
+                vn = new long[blocks];
+                d0 = new long[blocks];
+                pmPrev = new long[blocks];
+            }
+            return peq;
+        }
+        
     }
     
     /**
@@ -0,0 +1,135 @@
+/**
+ * GuessSelector.java
+ */
+
+package main.distle;
+
+import static main.distle.EditDistanceUtils.*;
+import java.util.*;
+
+/**
+ * Chooses Distle guesses that minimize the expected number of candidates left
+ * after the game's feedback. Every guess splits the candidates into buckets
+ * that would receive the same feedback (edit distance and top-down
+ * transforms), and the expected number remaining is the sum of the squared
+ * bucket sizes over the number of candidates. Both the guesses tried and the
+ * candidates they are scored against are sampled, so that a choice is made
+ * within a fixed time budget regardless of the dictionary's size.
+ */
+public class GuessSelector {
+
+    // Number of candidates a guess is scored against; larger candidate sets
+    // are estimated from a random sample of this size
+    private static final int SAMPLE_SIZE = 512;
+    // Number of guesses from outside the candidates that are tried, after
+    // the candidates themselves, if time allows
+    private static final int OUTSIDE_GUESSES = 256;
+
+    private final String[] words;
+    private final long budgetNanos;
+    private final Random random;
+    // Number of transformation signatures computed so far
+    private long computations;
+
+    /**
+     * Constructs a new GuessSelector over the given words.
+     *
+     * @param words The dictionary, indexed as in the candidate arrays given to
+     * {@link #selectGuess(int[])}
+     * @param budgetMillis The time to spend scoring guesses on each call
+     * @param random Source of the sampled guesses and candidates
+     */
+    public GuessSelector (String[] words, long budgetMillis, Random random) {
+        this.words = words;
+        this.budgetNanos = budgetMillis * 1_000_000;
+        this.random = random;
+    }
+
+    /**
+     * Returns the index of the word to guess next: the best scoring guess of
+     * those tried within the time budget. Guesses that are candidates
+     * themselves are tried first and win ties, since they may end the game.
+     *
+     * @param candidates Ascending indices of the words that may be the secret word
+     * @return Index into the words of the next guess
+     */
+    public int selectGuess (int[] candidates) {
+        if (candidates.length <= 2) {
+            return candidates[0];
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        int[] targets = sample(candidates, Math.min(SAMPLE_SIZE, candidates.length));
+        // In dictionary order, consecutive targets share the most work
+        Arrays.sort(targets);
+        int[] guesses = sample(candidates, candidates.length);
+        long[] signatures = new long[targets.length];
+
+        int best = guesses[0];
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < guesses.length + OUTSIDE_GUESSES; i++) {
+            if (i > 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            boolean candidate = i < guesses.length;
+            int guess = candidate ? guesses[i] : random.nextInt(words.length);
+            double score = expectedRemaining(words[guess], targets, signatures, candidates.length);
+            if (candidate) {
+                // The guess is right with probability 1 / n, leaving nothing
+                score -= 1.0 / candidates.length;
+            }
+            if (score < bestScore) {
+                best = guess;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The number of transformation signatures computed by all calls
+     * so far, each comparing a guess to a candidate
+     */
+    public long getComputations () {
+        return computations;
+    }
+
+    /**
+     * Estimates the number of candidates left after guessing the given word,
+     * from the feedback it would receive for each of the sampled targets.
+     *
+     * @param guess The word to score
+     * @param targets Sample of the candidates' indices
+     * @param signatures Scratch space for one feedback per target
+     * @param candidateCount The number of candidates the targets were sampled from
+     * @return Expected number of candidates consistent with the feedback
+     */
+    private double expectedRemaining (String guess, int[] targets, long[] signatures, int candidateCount) {
+        // A transformation signature carries its length, and thus the edit
+        // distance, so it identifies the whole feedback
+        getTransformationSignatures(guess, words, targets, signatures);
+        computations += targets.length;
+        Arrays.sort(signatures);
+        long sumOfSquares = 0;
+        for (int start = 0, end; start < signatures.length; start = end) {
+            for (end = start + 1; end < signatures.length && signatures[end] == signatures[start]; end++);
+            sumOfSquares += (long) (end - start) * (end - start);
+        }
+        return (double) sumOfSquares * candidateCount / ((double) targets.length * targets.length);
+    }
+
+    /**
+     * Returns the given number of the candidates, drawn at random without
+     * replacement, in random order.
+     */
+    private int[] sample (int[] candidates, int count) {
+        int[] shuffled = candidates.clone();
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(shuffled.length - i);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        return (count == shuffled.length) ? shuffled : Arrays.copyOf(shuffled, count);
+    }
+
+}
@@ -0,0 +1,226 @@
+/**
+ * OpeningBook.java
+ */
+
+package main.distle;
+
+import static main.distle.EditDistanceUtils.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed first guess of a Distle game, plus the second guess to make
+ * after each possible feedback to it. Every game on a given dictionary starts
+ * from the same candidates, so these are computed once offline by
+ * {@link #build(String[], GuessSelector)} and saved to a file that records a
+ * fingerprint of the dictionary, so a book is only ever used with the
+ * dictionary it was built for.
+ */
+public class OpeningBook {
+
+    // Leading int of every opening book file
+    private static final int MAGIC = 0x4453424B;
+    // Books already read, by path, shared by every player
+    private static final Map<Path, Optional<OpeningBook>> LOADED = new ConcurrentHashMap<>();
+
+    private final long fingerprint;
+    private final String firstGuess;
+    // Transformation signatures of the feedback to the first guess in
+    // ascending order, and the second guess to make after each
+    private final long[] signatures;
+    private final String[] secondGuesses;
+
+    private OpeningBook (long fingerprint, String firstGuess, long[] signatures, String[] secondGuesses) {
+        this.fingerprint = fingerprint;
+        this.firstGuess = firstGuess;
+        this.signatures = signatures;
+        this.secondGuesses = secondGuesses;
+    }
+
+    /**
+     * Builds the opening book for the given dictionary, choosing the first
+     * guess among all of its words and the second guess among the words left
+     * by each feedback to it.
+     *
+     * @param words The dictionary the book is for
+     * @param selector Selector over the same words, whose time budget applies
+     * to each guess in the book
+     * @return The opening book for the dictionary
+     */
+    public static OpeningBook build (String[] words, GuessSelector selector) {
+        int[] all = new int[words.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        String firstGuess = words[selector.selectGuess(all)];
+
+        // Sorting (signature, index) pairs groups the words by feedback
+        long[] feedback = new long[words.length];
+        Long[] order = new Long[words.length];
+        getTransformationSignatures(firstGuess, words, 0, words.length, feedback);
+        for (int i = 0; i < words.length; i++) {
+            order[i] = (long) i;
+        }
+        Arrays.sort(order, Comparator.<Long>comparingLong(i -> feedback[i.intValue()]).thenComparingLong(i -> i));
+
+        List<Long> signatures = new ArrayList<>();
+        List<String> secondGuesses = new ArrayList<>();
+        for (int start = 0, end; start < order.length; start = end) {
+            long signature = feedback[order[start].intValue()];
+            for (end = start + 1; end < order.length && feedback[order[end].intValue()] == signature; end++);
+            int[] bucket = new int[end - start];
+            for (int i = start; i < end; i++) {
+                bucket[i - start] = order[i].intValue();
+            }
+            signatures.add(signature);
+            secondGuesses.add(words[selector.selectGuess(bucket)]);
+        }
+        return new OpeningBook(fingerprint(words), firstGuess,
+                signatures.stream().mapToLong(Long::longValue).toArray(), secondGuesses.toArray(new String[0]));
+    }
+
+    /**
+     * Returns a fingerprint of the given dictionary that does not depend on
+     * the order of its words.
+     *
+     * @param words The words of a dictionary, without duplicates
+     * @return The dictionary's fingerprint
+     */
+    public static long fingerprint (String[] words) {
+        long sum = words.length;
+        for (String word : words) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < word.length(); i++) {
+                hash = (hash ^ word.charAt(i)) * 0x100000001b3L;
+            }
+            // Mixed before summing so that similar words do not cancel out
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            sum += hash;
+        }
+        return sum;
+    }
+
+    /**
+     * Determines whether this book was built for the given dictionary.
+     *
+     * @param fingerprint Fingerprint of a dictionary, as from {@link #fingerprint(String[])}
+     * @return true if the book applies to the dictionary
+     */
+    public boolean matches (long fingerprint) {
+        return this.fingerprint == fingerprint;
+    }
+
+    /**
+     * @return The first guess to make in every game
+     */
+    public String getFirstGuess () {
+        return firstGuess;
+    }
+
+    /**
+     * Returns the second guess to make after the first guess received the
+     * feedback with the given transformation signature.
+     *
+     * @param signature Transformation signature of the feedback to the first guess
+     * @return The second guess, or null if no word gives that feedback
+     */
+    public String getSecondGuess (long signature) {
+        int index = Arrays.binarySearch(signatures, signature);
+        return (index < 0) ? null : secondGuesses[index];
+    }
+
+
+    // -----------------------------------------------
+    // Persistence
+    // -----------------------------------------------
+
+    /**
+     * Writes this book to the given file.
+     *
+     * @param path The file to write
+     * @throws IOException
+     */
+    public void save (Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(fingerprint);
+            out.writeUTF(firstGuess);
+            out.writeInt(signatures.length);
+            for (int i = 0; i < signatures.length; i++) {
+                out.writeLong(signatures[i]);
+                out.writeUTF(secondGuesses[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a book written by {@link #save(Path)}.
+     *
+     * @param path The file to read
+     * @return The book in the file
+     * @throws IOException
+     */
+    public static OpeningBook load (Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not an opening book");
+            }
+            long fingerprint = in.readLong();
+            String firstGuess = in.readUTF();
+            int count = in.readInt();
+            long[] signatures = new long[count];
+            String[] secondGuesses = new String[count];
+            for (int i = 0; i < count; i++) {
+                signatures[i] = in.readLong();
+                secondGuesses[i] = in.readUTF();
+            }
+            return new OpeningBook(fingerprint, firstGuess, signatures, secondGuesses);
+        }
+    }
+
+    /**
+     * Returns the book in the given file, reading it only the first time it
+     * is asked for.
+     *
+     * @param path The file to read
+     * @return The book in the file, or null if there is no such file
+     * @throws UncheckedIOException If the file exists but cannot be read as a book
+     */
+    public static OpeningBook get (Path path) {
+        return LOADED.computeIfAbsent(path.toAbsolutePath(), p -> {
+            if (!Files.exists(p)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(load(p));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Builds the opening book for a dictionary file and saves it.
+     *
+     * @param args The dictionary file (text or a saved DictionaryStore), the book file to write, and optionally
+     * the milliseconds to spend choosing each guess (default 1000)
+     * @throws IOException
+     */
+    public static void main (String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBook <dictionary> <book> [millis per guess]");
+            System.exit(1);
+        }
+        String[] words = DictionaryStore.load(Paths.get(args[0])).getWords();
+        long budgetMillis = (args.length > 2) ? Long.parseLong(args[2]) : 1000;
+
+        OpeningBook book = build(words, new GuessSelector(words, budgetMillis, new Random()));
+        book.save(Paths.get(args[1]));
+        System.out.println("Opening " + book.getFirstGuess() + " with " + book.signatures.length + " second guesses");
+    }
+
+}
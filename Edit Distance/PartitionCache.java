@@ -0,0 +1,212 @@
+/**
+ * PartitionCache.java
+ */
+
+package main.distle;
+
+import static main.distle.EditDistanceUtils.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe cache of how guesses partition a dictionary: for a guess, which
+ * words would receive each possible feedback (transformation signature) if
+ * they were the secret word. Games on the same dictionary keep making the
+ * same guesses, above all early on, so a partition computed in one game
+ * answers the same (guess, feedback) in every later game with a single
+ * lookup. All of a guess's partitions are computed together, with one bulk
+ * pass over the dictionary, and the least recently used guesses are evicted
+ * once the cache holds its maximum number.
+ */
+public class PartitionCache {
+
+    // Default number of guesses whose partitions are kept
+    public static final int DEFAULT_MAX_GUESSES = 64;
+    // Number of dictionaries whose caches are shared before the least
+    // recently used is dropped
+    private static final int MAX_SHARED = 4;
+    // Caches already created, by dictionary fingerprint, shared by every player
+    private static final LinkedHashMap<Long, PartitionCache> SHARED = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<Long, PartitionCache> eldest) {
+            return size() > MAX_SHARED;
+        }
+    };
+
+    private final String[] words;
+    private final int maxGuesses;
+    private final LinkedHashMap<Integer, Partitions> partitions;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    /**
+     * Constructs a new, empty PartitionCache.
+     *
+     * @param words The dictionary, which must not be modified afterwards
+     * @param maxGuesses Maximum number of guesses whose partitions are kept
+     * before the least recently used are evicted
+     */
+    public PartitionCache (String[] words, int maxGuesses) {
+        if (maxGuesses <= 0) {
+            throw new IllegalArgumentException("maxGuesses must be positive");
+        }
+        this.words = words;
+        this.maxGuesses = maxGuesses;
+        this.partitions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Integer, Partitions> eldest) {
+                return size() > PartitionCache.this.maxGuesses;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache for the dictionary with the given fingerprint,
+     * creating it over the given words if none is held. Caches are held for
+     * the MAX_SHARED most recently used dictionaries.
+     *
+     * @param words The dictionary, in the order its indices refer to
+     * @param fingerprint The dictionary's fingerprint, as from
+     * {@link OpeningBook#fingerprint(String[])}
+     * @return The shared cache for the dictionary
+     */
+    public static PartitionCache shared (String[] words, long fingerprint) {
+        synchronized (SHARED) {
+            PartitionCache cache = SHARED.get(fingerprint);
+            if (cache != null) {
+                return cache;
+            }
+        }
+        // Built outside the lock so that other dictionaries aren't held up;
+        // if another thread raced us here, keep the one it shared
+        PartitionCache cache = new PartitionCache(words, DEFAULT_MAX_GUESSES);
+        synchronized (SHARED) {
+            PartitionCache existing = SHARED.putIfAbsent(fingerprint, cache);
+            return (existing != null) ? existing : cache;
+        }
+    }
+
+    /**
+     * Determines whether the partitions of the given guess are cached.
+     *
+     * @param guess Index of the guessed word
+     * @return true if {@link #getPartition(int, long)} would not compute them
+     */
+    public boolean isCached (int guess) {
+        synchronized (partitions) {
+            return partitions.containsKey(guess);
+        }
+    }
+
+    /**
+     * Returns the words that give the guess the feedback with the given
+     * signature, computing every partition of the guess if they are not cached.
+     *
+     * @param guess Index of the guessed word
+     * @param signature Exact transformation signature of the feedback
+     * @return Set of the words with that feedback
+     */
+    public CandidateSet getPartition (int guess, long signature) {
+        return getPartition(guess, signature, null);
+    }
+
+    /**
+     * See {@link #getPartition(int, long)}. Adds the number of transformation
+     * signatures computed for the lookup (0 if it was answered from the cache)
+     * to the given counter.
+     *
+     * @param guess Index of the guessed word
+     * @param signature Exact transformation signature of the feedback
+     * @param computations Counter of signatures computed, or null
+     * @return Set of the words with that feedback
+     */
+    public CandidateSet getPartition (int guess, long signature, LongAdder computations) {
+        Partitions cached;
+        synchronized (partitions) {
+            cached = partitions.get(guess);
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            // Computed outside the lock so that misses don't serialize each
+            // other; if another thread raced us here, keep what it cached
+            Partitions computed = new Partitions(words[guess], words);
+            if (computations != null) {
+                computations.add(words.length);
+            }
+            synchronized (partitions) {
+                cached = partitions.putIfAbsent(guess, computed);
+            }
+            if (cached == null) {
+                cached = computed;
+            }
+        }
+        return cached.get(signature, words.length);
+    }
+
+    /**
+     * @return Number of lookups answered from the cache
+     */
+    public long hits () {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of lookups that had to partition the dictionary
+     */
+    public long misses () {
+        return misses.sum();
+    }
+
+    /**
+     * The partitions of the dictionary by a single guess: the words' indices
+     * grouped by the feedback they give it, with the groups in ascending
+     * order of signature.
+     */
+    private static class Partitions {
+
+        private final long[] signatures;
+        // Group g is members[starts[g]] to members[starts[g + 1] - 1]
+        private final int[] starts, members;
+
+        Partitions (String guess, String[] words) {
+            long[] feedback = new long[words.length];
+            getTransformationSignatures(guess, words, 0, words.length, feedback);
+            long[] sorted = feedback.clone();
+            Arrays.sort(sorted);
+            int groups = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[groups++] = sorted[i];
+                }
+            }
+            signatures = Arrays.copyOf(sorted, groups);
+
+            // Counting sort of the words by group, keeping them ascending
+            int[] group = new int[words.length];
+            starts = new int[groups + 1];
+            for (int i = 0; i < words.length; i++) {
+                group[i] = Arrays.binarySearch(signatures, feedback[i]);
+                starts[group[i] + 1]++;
+            }
+            for (int g = 0; g < groups; g++) {
+                starts[g + 1] += starts[g];
+            }
+            members = new int[words.length];
+            int[] next = Arrays.copyOf(starts, groups);
+            for (int i = 0; i < words.length; i++) {
+                members[next[group[i]]++] = i;
+            }
+        }
+
+        CandidateSet get (long signature, int size) {
+            int g = Arrays.binarySearch(signatures, signature);
+            if (g < 0) {
+                return new CandidateSet(size, false);
+            }
+            return new CandidateSet(size, Arrays.copyOfRange(members, starts[g], starts[g + 1]));
+        }
+
+    }
+
+}
@@ -0,0 +1,257 @@
+/**
+ * AdaptiveHuffman.java
+ */
+
+package main.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * AdaptiveHuffman instances compress and decompress text in a single pass
+ * with the FGK adaptive Huffman algorithm: rather than being built from a
+ * corpus up front as in {@link Huffman}, the Huffman Trie starts empty and is
+ * updated after every character, so that the encoder and decoder evolve the
+ * same trie in lockstep. Characters not yet seen are sent as the code of the
+ * NYT ("not yet transmitted") leaf followed by the raw 16-bit character.
+ */
+public class AdaptiveHuffman {
+
+    /**
+     * Compresses the given String message in a single pass.
+     *
+     * @param message String representing the corpus to compress.
+     * @return {@code byte[]} representing the compressed corpus. Formatted as:
+     *         (1) the adaptively coded bitstring containing the message itself
+     *         and a terminating ETB character, (2) possible 0-padding on the
+     *         final byte.
+     */
+    public byte[] compress (String message) {
+        AdaptiveTrie trie = new AdaptiveTrie();
+        Huffman.BitWriter writeBits = new Huffman.BitWriter(ByteBuffer.allocate(message.length() + 16), true);
+        for (int i = 0; i < message.length(); i++) {
+            trie.encode(message.charAt(i), writeBits);
+        }
+        trie.encode(Huffman.ETB_CHAR, writeBits);
+        return writeBits.byteArray();
+    }
+
+    /**
+     * Decompresses a message produced by {@link #compress(String)}, rebuilding
+     * the same adaptive trie as the message is read.
+     *
+     * @param compressedMsg {@code byte[]} representing the compressed corpus.
+     * @return Decompressed String representation of the compressed message.
+     */
+    public String decompress (byte[] compressedMsg) {
+        AdaptiveTrie trie = new AdaptiveTrie();
+        Huffman.BitReader bitReader = new Huffman.BitReader(ByteBuffer.wrap(compressedMsg));
+        StringBuilder message = new StringBuilder(compressedMsg.length * 2);
+        while (true) {
+            int c = trie.decode(bitReader);
+            if (c < 0 || c == Huffman.ETB_CHAR) {
+                break;
+            }
+            message.append((char) c);
+        }
+        return message.toString();
+    }
+
+
+    // -----------------------------------------------
+    // Adaptive Huffman Trie
+    // -----------------------------------------------
+
+    /**
+     * Adaptive Huffman Trie kept in parallel arrays indexed by node rank. Ranks
+     * are ordered by non-increasing weight (the sibling property), with the
+     * root at rank 0 and the NYT leaf at the highest rank, so new nodes are
+     * always appended at the end.
+     */
+    static class AdaptiveTrie {
+
+        private static final int NYT = -1, INTERNAL = -2;
+
+        private int[] parent, zeroChild, oneChild, weight, symbol;
+        // Rank of each character's leaf (0 if unseen, as rank 0 is the root)
+        private int[] leafRank;
+        private int size, nytRank;
+        // Scratch buffer for the bits of a code, gathered leaf-to-root
+        private int[] path;
+
+        AdaptiveTrie () {
+            int capacity = 64;
+            parent = new int[capacity];
+            zeroChild = new int[capacity];
+            oneChild = new int[capacity];
+            weight = new int[capacity];
+            symbol = new int[capacity];
+            leafRank = new int[128];
+            path = new int[64];
+            parent[0] = -1;
+            symbol[0] = NYT;
+            size = 1;
+            nytRank = 0;
+        }
+
+        void encode (char c, Huffman.BitWriter writeBits) {
+            int rank = (c < leafRank.length) ? leafRank[c] : 0;
+            boolean seen = rank != 0;
+            if (seen) {
+                writePath(rank, writeBits);
+            } else {
+                writePath(nytRank, writeBits);
+                writeBits.writeBits(c, 16);
+            }
+            update(c, seen ? rank : -1);
+        }
+
+        /**
+         * Reads the next character, or returns -1 if the message ends first.
+         */
+        int decode (Huffman.BitReader bitReader) {
+            int rank = 0;
+            while (symbol[rank] == INTERNAL) {
+                bitReader.refill();
+                if (bitReader.available == 0) {
+                    return -1;
+                }
+                rank = (bitReader.window < 0) ? oneChild[rank] : zeroChild[rank];
+                bitReader.consume(1);
+            }
+            char c;
+            if (symbol[rank] == NYT) {
+                bitReader.refill();
+                if (bitReader.available < 16) {
+                    return -1;
+                }
+                c = (char) (bitReader.window >>> 48);
+                bitReader.consume(16);
+                update(c, -1);
+            } else {
+                c = (char) symbol[rank];
+                update(c, rank);
+            }
+            return c;
+        }
+
+        /**
+         * Determines whether the trie has the sibling property: weights never
+         * increase with rank, siblings hold adjacent ranks below their
+         * parent's, and each internal node weighs as much as its children.
+         */
+        boolean hasSiblingProperty () {
+            for (int rank = 0; rank < size; rank++) {
+                if (rank > 0 && weight[rank] > weight[rank - 1]) {
+                    return false;
+                }
+                if (symbol[rank] == INTERNAL) {
+                    int zero = zeroChild[rank], one = oneChild[rank];
+                    if (Math.abs(zero - one) != 1 || Math.min(zero, one) <= rank
+                        || parent[zero] != rank || parent[one] != rank
+                        || weight[rank] != weight[zero] + weight[one]) {
+                        return false;
+                    }
+                }
+            }
+            return symbol[nytRank] == NYT && weight[nytRank] == 0;
+        }
+
+        private void writePath (int rank, Huffman.BitWriter writeBits) {
+            int length = 0;
+            for (int node = rank; node != 0; node = parent[node]) {
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = (oneChild[parent[node]] == node) ? 1 : 0;
+            }
+            while (length > 0) {
+                writeBits.writeBits(path[--length], 1);
+            }
+        }
+
+        /**
+         * Records one more occurrence of c, whose leaf is at the given rank (or
+         * -1 if c is new), restoring the sibling property on the way up.
+         */
+        private void update (char c, int rank) {
+            if (rank < 0) {
+                rank = spawnLeaf(c);
+            }
+            while (rank >= 0) {
+                // Swap with the first node of equal weight (the block leader),
+                // unless that is the parent, before incrementing
+                int leader = rank;
+                while (leader > 0 && weight[leader - 1] == weight[rank]) {
+                    leader--;
+                }
+                if (leader != rank && leader != parent[rank]) {
+                    swap(rank, leader);
+                    rank = leader;
+                }
+                weight[rank]++;
+                rank = parent[rank];
+            }
+        }
+
+        /**
+         * Splits the NYT leaf into an internal node with a new NYT leaf and a
+         * (zero-weight) leaf for c as its children, returning the new leaf's rank.
+         */
+        private int spawnLeaf (char c) {
+            if (size + 2 > weight.length) {
+                int capacity = weight.length * 2;
+                parent = Arrays.copyOf(parent, capacity);
+                zeroChild = Arrays.copyOf(zeroChild, capacity);
+                oneChild = Arrays.copyOf(oneChild, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                symbol = Arrays.copyOf(symbol, capacity);
+            }
+            if (c >= leafRank.length) {
+                leafRank = Arrays.copyOf(leafRank, Math.max(leafRank.length * 2, c + 1));
+            }
+            int internal = nytRank, leaf = size, nyt = size + 1;
+            symbol[internal] = INTERNAL;
+            oneChild[internal] = leaf;
+            zeroChild[internal] = nyt;
+            parent[leaf] = internal;
+            parent[nyt] = internal;
+            symbol[leaf] = c;
+            symbol[nyt] = NYT;
+            leafRank[c] = leaf;
+            nytRank = nyt;
+            size += 2;
+            return leaf;
+        }
+
+        /**
+         * Exchanges the subtrees at ranks a and b, keeping each rank's parent.
+         */
+        private void swap (int a, int b) {
+            int w = weight[a], s = symbol[a], z = zeroChild[a], o = oneChild[a];
+            weight[a] = weight[b];
+            symbol[a] = symbol[b];
+            zeroChild[a] = zeroChild[b];
+            oneChild[a] = oneChild[b];
+            weight[b] = w;
+            symbol[b] = s;
+            zeroChild[b] = z;
+            oneChild[b] = o;
+            relink(a);
+            relink(b);
+        }
+
+        private void relink (int rank) {
+            if (symbol[rank] == INTERNAL) {
+                parent[zeroChild[rank]] = rank;
+                parent[oneChild[rank]] = rank;
+            } else if (symbol[rank] == NYT) {
+                nytRank = rank;
+            } else {
+                leafRank[symbol[rank]] = rank;
+            }
+        }
+
+    }
+
+}
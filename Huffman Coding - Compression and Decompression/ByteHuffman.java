@@ -0,0 +1,316 @@
+/**
+ * ByteHuffman.java
+ */
+
+package main.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * ByteHuffman instances provide reusable Huffman Encoding Maps for
+ * compressing and decompressing arbitrary binary data, the byte-oriented
+ * counterpart to {@link Huffman}. The alphabet is the 256 byte values plus
+ * an EOF symbol that terminates each compressed message, and construction
+ * works entirely on primitive arrays: a frequency histogram and an
+ * array-backed heap of trie node indices.
+ */
+public class ByteHuffman {
+
+    // -----------------------------------------------
+    // Construction
+    // -----------------------------------------------
+
+    // Symbol that represents the end of a compressed message
+    private static final int EOF_SYMBOL = 256;
+    private static final int ALPHABET_SIZE = 257;
+    // Number of bits resolved by a single probe of the decoding table
+    private static final int TABLE_BITS = 10;
+
+    // Encoding Map indexed by symbol, packed as (code bits << 6) | code
+    // length, or -1 if the symbol has no code
+    private final long[] encodingMap = new long[ALPHABET_SIZE];
+    // Decoding table indexed by the next TABLE_BITS bits of a message, packed
+    // as (code length << 16) | symbol; 0 means the code is longer than
+    // TABLE_BITS and is decoded canonically from the arrays below
+    private final int[] decodingTable = new int[1 << TABLE_BITS];
+    // Canonical decoding state: per code length, the first code of that
+    // length and the index of its symbol in canonicalSymbols
+    private int maxLength;
+    private long[] firstCode;
+    private int[] firstIndex, lengthCounts;
+    private int[] canonicalSymbols;
+    private double averageCodeLength;
+
+    /**
+     * Creates the Encoding Map using the byte distributions in the given corpus.
+     *
+     * @param corpus Bytes with a distribution representative of the messages
+     *        that will be compressed.
+     */
+    public ByteHuffman (byte[] corpus) {
+        this(ByteBuffer.wrap(corpus));
+    }
+
+    /**
+     * Creates the Encoding Map using the byte distributions in the remaining
+     * bytes of the given corpus, without changing its position.
+     *
+     * @param corpus Buffer with a distribution representative of the messages
+     *        that will be compressed.
+     */
+    public ByteHuffman (ByteBuffer corpus) {
+        long[] histogram = new long[ALPHABET_SIZE];
+        for (int i = corpus.position(); i < corpus.limit(); i++) {
+            histogram[corpus.get(i) & 0xFF]++;
+        }
+        histogram[EOF_SYMBOL] = 1;
+
+        int[] codeLengths = buildCodeLengths(histogram);
+        assignCanonicalCodes(codeLengths);
+
+        long totalBits = 0, totalCount = 0;
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            totalBits += histogram[symbol] * codeLengths[symbol];
+            totalCount += histogram[symbol];
+        }
+        averageCodeLength = (double) totalBits / totalCount;
+    }
+
+
+    // -----------------------------------------------
+    // Compression
+    // -----------------------------------------------
+
+    /**
+     * Compresses the given bytes with this Encoding Map.
+     *
+     * @param message Bytes to compress.
+     * @return {@code byte[]} holding the Huffman coded bitstring of the message
+     *         followed by the EOF symbol, 0-padded to a whole byte.
+     */
+    public byte[] compress (byte[] message) {
+        return compress(ByteBuffer.wrap(message));
+    }
+
+    /**
+     * See {@link #compress(byte[])}. Compresses the remaining bytes of the
+     * given buffer, without changing its position.
+     */
+    public byte[] compress (ByteBuffer message) {
+        int length = message.remaining();
+        Huffman.BitWriter writeBits = new Huffman.BitWriter(ByteBuffer.allocate(
+                (int) Math.min(Integer.MAX_VALUE - 8, length * averageCodeLength / 8 + 16)), true);
+        for (int i = message.position(); i < message.limit(); i++) {
+            int symbol = message.get(i) & 0xFF;
+            long code = encodingMap[symbol];
+            if (code < 0) {
+                throw new IllegalArgumentException("Byte " + symbol + " is not in the Encoding Map");
+            }
+            writeBits.writeBits(code >>> 6, (int) code & 0x3F);
+        }
+        long code = encodingMap[EOF_SYMBOL];
+        writeBits.writeBits(code >>> 6, (int) code & 0x3F);
+        return writeBits.byteArray();
+    }
+
+
+    // -----------------------------------------------
+    // Decompression
+    // -----------------------------------------------
+
+    /**
+     * Decompresses a message produced by {@link #compress(byte[])}.
+     *
+     * @param compressedMsg {@code byte[]} holding the compressed message.
+     * @return The original bytes of the message.
+     */
+    public byte[] decompress (byte[] compressedMsg) {
+        return decompress(ByteBuffer.wrap(compressedMsg));
+    }
+
+    /**
+     * See {@link #decompress(byte[])}. Decompresses from the buffer's position,
+     * advancing it past the bytes read.
+     */
+    public byte[] decompress (ByteBuffer compressedMsg) {
+        Huffman.BitReader bitReader = new Huffman.BitReader(compressedMsg);
+        byte[] message = new byte[(int) Math.min(Integer.MAX_VALUE - 8,
+                compressedMsg.remaining() * 8L / Math.max(1.0, averageCodeLength) + 16)];
+        int size = 0;
+        while (true) {
+            bitReader.refill();
+            int decoded = decodeSymbol(bitReader.window, bitReader.available);
+            if (decoded < 0) {
+                break;
+            }
+            bitReader.consume(decoded >>> 16);
+            int symbol = decoded & 0xFFFF;
+            if (symbol == EOF_SYMBOL) {
+                break;
+            }
+            if (size == message.length) {
+                message = Arrays.copyOf(message, Math.max(16, message.length * 2));
+            }
+            message[size++] = (byte) symbol;
+        }
+        return (size == message.length) ? message : Arrays.copyOf(message, size);
+    }
+
+    /**
+     * Decodes the next symbol from a left-aligned window of bits.
+     *
+     * @return The symbol in the low 16 bits and its code length in the bits
+     *         above, or -1 if the window holds too few bits for a code.
+     */
+    private int decodeSymbol (long window, int available) {
+        if (maxLength == 0) {
+            return EOF_SYMBOL;
+        }
+        int entry = decodingTable[(int) (window >>> (64 - TABLE_BITS))];
+        if (entry != 0) {
+            return ((entry >>> 16) > available) ? -1 : entry;
+        }
+        for (int length = TABLE_BITS + 1; length <= maxLength && length <= available; length++) {
+            long offset = (window >>> (64 - length)) - firstCode[length];
+            if (offset < lengthCounts[length]) {
+                return (length << 16) | canonicalSymbols[firstIndex[length] + (int) offset];
+            }
+        }
+        return -1;
+    }
+
+
+    // -----------------------------------------------
+    // Code Construction
+    // -----------------------------------------------
+
+    /**
+     * Builds the Huffman trie over the symbols with nonzero counts and returns
+     * the depth of each symbol's leaf (0 for absent symbols). Trie nodes are
+     * indices into parallel arrays: leaves are their symbols, internal nodes
+     * follow from ALPHABET_SIZE on, and ties in count are broken by the lower
+     * index.
+     */
+    private static int[] buildCodeLengths (long[] histogram) {
+        int nodeCapacity = 2 * ALPHABET_SIZE;
+        long[] counts = Arrays.copyOf(histogram, nodeCapacity);
+        int[] parent = new int[nodeCapacity];
+        int[] heap = new int[ALPHABET_SIZE];
+        int size = 0;
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            if (histogram[symbol] > 0) {
+                size = heapPush(heap, size, symbol, counts);
+            }
+        }
+
+        int next = ALPHABET_SIZE;
+        while (size > 1) {
+            int first = heap[0];
+            size = heapPop(heap, size, counts);
+            int second = heap[0];
+            size = heapPop(heap, size, counts);
+            counts[next] = counts[first] + counts[second];
+            parent[first] = next;
+            parent[second] = next;
+            size = heapPush(heap, size, next, counts);
+            next++;
+        }
+
+        // Parents always have higher indices than their children, so depths
+        // can be filled in a single descending pass from the root
+        int root = heap[0];
+        int[] depth = new int[nodeCapacity];
+        for (int node = next - 1; node >= 0; node--) {
+            if (node != root && counts[node] > 0) {
+                depth[node] = depth[parent[node]] + 1;
+            }
+        }
+        return Arrays.copyOf(depth, ALPHABET_SIZE);
+    }
+
+    private static boolean heapLess (int a, int b, long[] counts) {
+        return counts[a] < counts[b] || (counts[a] == counts[b] && a < b);
+    }
+
+    private static int heapPush (int[] heap, int size, int node, long[] counts) {
+        int i = size;
+        while (i > 0 && heapLess(node, heap[(i - 1) / 2], counts)) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = node;
+        return size + 1;
+    }
+
+    private static int heapPop (int[] heap, int size, long[] counts) {
+        int last = heap[--size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heapLess(heap[child + 1], heap[child], counts)) {
+                child++;
+            }
+            if (!heapLess(heap[child], last, counts)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return size;
+    }
+
+    /**
+     * Assigns canonical codes (ordered by code length, then symbol) from the
+     * given code lengths and builds the matching decoding state.
+     */
+    private void assignCanonicalCodes (int[] codeLengths) {
+        Arrays.fill(encodingMap, -1);
+        maxLength = 0;
+        int symbolCount = 0;
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            if (codeLengths[symbol] > 0 || symbol == EOF_SYMBOL) {
+                maxLength = Math.max(maxLength, codeLengths[symbol]);
+                symbolCount++;
+            }
+        }
+        if (maxLength == 0) {
+            // The EOF symbol alone, coded with no bits at all
+            encodingMap[EOF_SYMBOL] = 0;
+            return;
+        }
+
+        lengthCounts = new int[maxLength + 1];
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            if (codeLengths[symbol] > 0) {
+                lengthCounts[codeLengths[symbol]]++;
+            }
+        }
+        firstCode = new long[maxLength + 1];
+        firstIndex = new int[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            firstCode[length] = code;
+            firstIndex[length] = firstIndex[length - 1] + lengthCounts[length - 1];
+        }
+
+        canonicalSymbols = new int[symbolCount];
+        int[] nextIndex = Arrays.copyOf(firstIndex, maxLength + 1);
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                int index = nextIndex[length]++;
+                canonicalSymbols[index] = symbol;
+                long symbolCode = firstCode[length] + (index - firstIndex[length]);
+                encodingMap[symbol] = (symbolCode << 6) | length;
+                if (length <= TABLE_BITS) {
+                    int start = (int) symbolCode << (TABLE_BITS - length);
+                    Arrays.fill(decodingTable, start, start + (1 << (TABLE_BITS - length)), (length << 16) | symbol);
+                }
+            }
+        }
+    }
+
+}
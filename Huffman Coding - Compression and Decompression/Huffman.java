@@ -7,12 +7,25 @@
 package main.compression;
 
 import java.util.*;
-import java.io.ByteArrayOutputStream; // Optional
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * Huffman instances provide reusable Huffman Encoding Maps for
  * compressing and decompressing text corpi with comparable
  * distributions of characters.
+ * 
+ * Codes are assigned canonically from the Huffman code lengths, so an
+ * Encoding Map is fully described by its code lengths per character; see
+ * {@link #getCodeTable()} and {@link #decode(byte[])} for self-describing
+ * compressed messages.
+ * 
+ * Instances are never modified after construction, so one instance may be
+ * shared between threads (see {@link HuffmanCache}).
  */
 public class Huffman {
     
@@ -21,10 +34,27 @@ public class Huffman {
     // -----------------------------------------------
 
     private HuffNode trieRoot;
-    // TreeMap chosen here just to make debugging easier
-    private TreeMap<Character, String> encodingMap;
+    // Encoding Map indexed by character: each code is packed as
+    // (code bits << 6) | code length, or -1 if the character has no code
+    private long[] encodingMap;
     // Character that represents the end of a compressed transmission
-    private static final char ETB_CHAR = 23;
+    static final char ETB_CHAR = 23;
+    
+    // Longest code supported, as decoding needs a whole code in the bit window
+    static final int MAX_CODE_LENGTH = BitReader.REFILL_BITS;
+    
+    // Number of bits resolved by a single probe of the decoding table
+    private static final int TABLE_BITS = 10;
+    // Decoding table indexed by the next TABLE_BITS bits of a message, packed
+    // as (code length << 16) | character; 0 means the code is longer than
+    // TABLE_BITS and decoding continues bit-by-bit from the matching
+    // tableOverflow node
+    private int[] decodingTable;
+    private HuffNode[] tableOverflow;
+    // Corpus-weighted average code length, used to size decoding buffers
+    private double averageCodeLength;
+    // Length of the longest code in the Encoding Map
+    private int maxCodeLength;
     
     /**
      * Creates the Huffman Trie and Encoding Map using the character
@@ -37,23 +67,42 @@ public class Huffman {
      *        differ.
      */
     public Huffman (String corpus) {
-    	encodingMap = new TreeMap<>();
-    	TreeMap<Character, Integer> characterCount = new TreeMap<>();
-        for(int i = 0; i < corpus.length(); i++) {
-        	char c = corpus.charAt(i);
-        	if (characterCount.containsKey(c)) {
-        		characterCount.put(c, characterCount.get(c) + 1);
-        	} else {
-        		characterCount.put(c, 1);
-        	}
-        }
-        
-        characterCount.put(ETB_CHAR, 1);
-        
+    	this(countCharacters(corpus), Integer.MAX_VALUE);
+    }
+    
+    /**
+     * See {@link #Huffman(String corpus)}. Limits every code to at most
+     * maxCodeLength bits, so that decoding a character never needs more than
+     * that many bits; when the Huffman Trie is deeper than the limit, the
+     * code lengths are instead chosen by the package-merge algorithm, which
+     * finds the optimal lengths subject to the limit. The cost in compression
+     * can be compared through {@link #getAverageCodeLength()}.
+     * 
+     * @param corpus A String representing a message / document corpus.
+     * @param maxCodeLength Maximum number of bits in any code.
+     * @throws IllegalArgumentException if maxCodeLength bits cannot give every
+     *         distinct character (plus ETB_CHAR) its own code
+     */
+    public Huffman (String corpus, int maxCodeLength) {
+    	this(countCharacters(corpus), maxCodeLength);
+    }
+    
+    /**
+     * Creates the Huffman Trie and Encoding Map from precomputed character
+     * counts, as returned by {@link #countCharacters(String)}.
+     * 
+     * @param characterCount Number of occurrences of each character in the
+     *        corpus, indexed by character; ETB_CHAR is always counted once.
+     * @param maxCodeLength Maximum number of bits in any code.
+     */
+    Huffman (int[] characterCount, int maxCodeLength) {
         PriorityQueue<HuffNode> q = new PriorityQueue<>();
-        for(char c: characterCount.keySet()) {
-        	HuffNode leaf = new HuffNode(c, characterCount.get(c));
-        	q.add(leaf);
+        for(int c = 0; c < Math.max(characterCount.length, ETB_CHAR + 1); c++) {
+        	if (c == ETB_CHAR) {
+        		q.add(new HuffNode(ETB_CHAR, 1));
+        	} else if (c < characterCount.length && characterCount[c] > 0) {
+        		q.add(new HuffNode((char) c, characterCount[c]));
+        	}
         }
         
         while (q.size() > 1) {
@@ -67,10 +116,259 @@ public class Huffman {
         
         trieRoot = q.poll();
         
-        buildMap(trieRoot, "");
+        TreeMap<Character, Integer> codeLengths = new TreeMap<>();
+        buildLengths(trieRoot, 0, codeLengths);
+        if (Collections.max(codeLengths.values()) > maxCodeLength) {
+        	limitCodeLengths(codeLengths, characterCount, maxCodeLength);
+        }
+        assignCanonicalCodes(codeLengths);
+        
+        long totalBits = 0, totalCount = 0;
+        for (Map.Entry<Character, Integer> entry : codeLengths.entrySet()) {
+        	char c = entry.getKey();
+        	int count = (c == ETB_CHAR) ? 1 : characterCount[c];
+        	totalBits += (long) count * entry.getValue();
+        	totalCount += count;
+        }
+        averageCodeLength = (double) totalBits / totalCount;
      
     }
     
+    /**
+     * Replaces the given code lengths with the optimal ones no longer than
+     * maxCodeLength, by package-merge: starting from the characters sorted by
+     * count at the deepest level, each shallower level merges the characters
+     * with the pairwise "packages" of the level below. Taking the cheapest
+     * 2n - 2 items of the shallowest level, each character's code length is
+     * the number of levels at which it is (directly or within a package) taken.
+     */
+    private static void limitCodeLengths (TreeMap<Character, Integer> codeLengths, int[] characterCount, int maxCodeLength) {
+    	int n = codeLengths.size();
+    	if ((1L << Math.min(maxCodeLength, 62)) < n) {
+    		throw new IllegalArgumentException("Codes of " + maxCodeLength + " bits cannot encode " + n + " characters");
+    	}
+    	Character[] symbols = codeLengths.keySet().toArray(new Character[0]);
+    	long[] leafWeights = new long[n];
+    	Arrays.sort(symbols, Comparator.comparingLong((Character c) -> (c == ETB_CHAR) ? 1 : characterCount[c]));
+    	for (int i = 0; i < n; i++) {
+    		leafWeights[i] = (symbols[i] == ETB_CHAR) ? 1 : characterCount[symbols[i]];
+    	}
+    	
+    	// isPackage[level][i] tells whether the ith cheapest item at that level
+    	// is a package rather than a character; level maxCodeLength - 1 is the
+    	// deepest, holding only characters
+    	boolean[][] isPackage = new boolean[maxCodeLength][];
+    	long[] items = leafWeights;
+    	isPackage[maxCodeLength - 1] = new boolean[n];
+    	for (int level = maxCodeLength - 2; level >= 0; level--) {
+    		int packages = items.length / 2;
+    		long[] merged = new long[n + packages];
+    		boolean[] mergedIsPackage = new boolean[n + packages];
+    		int leaf = 0, pkg = 0;
+    		for (int i = 0; i < merged.length; i++) {
+    			long packageWeight = (pkg < packages) ? items[2 * pkg] + items[2 * pkg + 1] : Long.MAX_VALUE;
+    			if (leaf < n && leafWeights[leaf] <= packageWeight) {
+    				merged[i] = leafWeights[leaf++];
+    			} else {
+    				merged[i] = packageWeight;
+    				mergedIsPackage[i] = true;
+    				pkg++;
+    			}
+    		}
+    		items = merged;
+    		isPackage[level] = mergedIsPackage;
+    	}
+    	
+    	int[] lengths = new int[n];
+    	int taken = 2 * n - 2;
+    	for (int level = 0; level < maxCodeLength && taken > 0; level++) {
+    		int leaves = 0;
+    		for (int i = 0; i < taken; i++) {
+    			if (!isPackage[level][i]) {
+    				lengths[leaves++]++;
+    			}
+    		}
+    		taken = 2 * (taken - leaves);
+    	}
+    	for (int i = 0; i < n; i++) {
+    		codeLengths.put(symbols[i], lengths[i]);
+    	}
+    }
+    
+    /**
+     * Returns the average number of bits per character this Encoding Map
+     * spends on its own corpus (or, for an instance read from a code table,
+     * on the distribution its code lengths imply).
+     * 
+     * @return The average code length, in bits per character.
+     */
+    public double getAverageCodeLength () {
+    	return averageCodeLength;
+    }
+    
+    /**
+     * Counts the occurrences of each character in the given corpus.
+     * 
+     * @param corpus The text corpus to count.
+     * @return Array indexed by character holding its number of occurrences,
+     *         just long enough to hold the largest character present.
+     */
+    static int[] countCharacters (String corpus) {
+    	int[] characterCount = new int[128];
+    	for (int i = 0; i < corpus.length(); i++) {
+    		char c = corpus.charAt(i);
+    		if (c >= characterCount.length) {
+    			characterCount = Arrays.copyOf(characterCount, Math.max(characterCount.length * 2, c + 1));
+    		}
+    		characterCount[c]++;
+    	}
+    	return characterCount;
+    }
+    
+    /**
+     * Creates the Huffman Trie and Encoding Map directly from a table of
+     * code lengths, as read back from a serialized code table.
+     * 
+     * @param codeLengths Map of each encoded character (including ETB_CHAR)
+     *        to the length of its canonical code.
+     */
+    private Huffman (TreeMap<Character, Integer> codeLengths) {
+    	assignCanonicalCodes(codeLengths);
+    	// Without the corpus, estimate using the distribution the lengths imply
+    	averageCodeLength = 0;
+    	for (int length : codeLengths.values()) {
+    		averageCodeLength += length * Math.pow(2, -length);
+    	}
+    }
+    
+    
+    // -----------------------------------------------
+    // Code Table
+    // -----------------------------------------------
+    
+    /**
+     * Returns the compact serialized form of this Huffman's code table, holding
+     * only the code length of each character. Formatted as:
+     * (1) one byte with the maximum code length L, (2) for each length 1..L, the
+     * number of characters with a code of that length as an unsigned varint,
+     * (3) each character as 2 bytes, in canonical (length, then character) order.
+     * 
+     * @return {@code byte[]} holding the serialized code table.
+     */
+    public byte[] getCodeTable () {
+    	TreeMap<Character, Integer> codeLengths = new TreeMap<>();
+    	for (int c = 0; c < encodingMap.length; c++) {
+    		if (encodingMap[c] >= 0) {
+    			codeLengths.put((char) c, (int) (encodingMap[c] & 0x3F));
+    		}
+    	}
+    	List<Character> symbols = canonicalOrder(codeLengths);
+    	int maxLength = codeLengths.get(symbols.get(symbols.size() - 1));
+    	int[] lengthCounts = new int[maxLength + 1];
+    	for (int length : codeLengths.values()) {
+    		lengthCounts[length]++;
+    	}
+    	
+    	ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    	stream.write(maxLength);
+    	for (int length = 1; length <= maxLength; length++) {
+    		int count = lengthCounts[length];
+    		while (count >= 0x80) {
+    			stream.write((count & 0x7F) | 0x80);
+    			count >>>= 7;
+    		}
+    		stream.write(count);
+    	}
+    	if (maxLength > 0) {
+    		for (char c : symbols) {
+    			stream.write(c >>> 8);
+    			stream.write(c);
+    		}
+    	}
+    	return stream.toByteArray();
+    }
+    
+    /**
+     * Reconstructs a Huffman instance from a serialized code table as produced
+     * by {@link #getCodeTable()}, advancing the buffer past the table.
+     * 
+     * @param table Buffer positioned at the start of a serialized code table.
+     * @return Huffman instance with the same Encoding Map as the one that
+     *         produced the table.
+     * @throws IllegalArgumentException if the table is malformed, its code
+     *         lengths do not form a complete prefix code, or any is longer
+     *         than MAX_CODE_LENGTH
+     */
+    public static Huffman readCodeTable (ByteBuffer table) {
+    	TreeMap<Character, Integer> codeLengths = new TreeMap<>();
+    	try {
+    		int maxLength = table.get() & 0xFF;
+    		if (maxLength == 0) {
+    			codeLengths.put(ETB_CHAR, 0);
+    			return new Huffman(codeLengths);
+    		}
+    		if (maxLength > MAX_CODE_LENGTH) {
+    			throw new IllegalArgumentException("Huffman code table has codes of " + maxLength
+    					+ " bits, more than the " + MAX_CODE_LENGTH + " supported");
+    		}
+    		int[] lengthCounts = new int[maxLength + 1];
+    		// Kraft sum in units of 2^-maxLength: the code lengths of a complete
+    		// prefix code sum to exactly 1, so exactly 1 << maxLength here
+    		long kraftSum = 0;
+    		int symbols = 0;
+    		for (int length = 1; length <= maxLength; length++) {
+    			int count = 0, shift = 0, b;
+    			do {
+    				b = table.get() & 0xFF;
+    				count |= (b & 0x7F) << shift;
+    				shift += 7;
+    			} while ((b & 0x80) != 0 && shift < 32);
+    			if (count < 0 || count > (1L << length)) {
+    				throw new IllegalArgumentException("Invalid Huffman code table");
+    			}
+    			kraftSum += (long) count << (maxLength - length);
+    			if (kraftSum > (1L << maxLength)) {
+    				throw new IllegalArgumentException("Huffman code table is over-full");
+    			}
+    			lengthCounts[length] = count;
+    			symbols += count;
+    		}
+    		if (kraftSum < (1L << maxLength)) {
+    			throw new IllegalArgumentException("Huffman code table is incomplete");
+    		}
+    		for (int length = 1; length <= maxLength; length++) {
+    			for (int i = 0; i < lengthCounts[length]; i++) {
+    				codeLengths.put(table.getChar(), length);
+    			}
+    		}
+    		if (codeLengths.size() < symbols) {
+    			throw new IllegalArgumentException("Huffman code table repeats a character");
+    		}
+    	} catch (BufferUnderflowException e) {
+    		throw new IllegalArgumentException("Truncated Huffman code table", e);
+    	}
+    	if (!codeLengths.containsKey(ETB_CHAR)) {
+    		throw new IllegalArgumentException("Invalid Huffman code table");
+    	}
+    	return new Huffman(codeLengths);
+    }
+    
+    /**
+     * Decompresses a self-describing message produced by
+     * {@link #compress(String message, boolean includeCodeTable)} with its code
+     * table included, without needing the corpus that generated it.
+     * 
+     * @param compressedMsg {@code byte[]} holding the code table followed by
+     *        the compressed message.
+     * @return Decompressed String representation of the message.
+     */
+    public static String decode (byte[] compressedMsg) {
+    	ByteBuffer buffer = ByteBuffer.wrap(compressedMsg);
+    	Huffman huffman = readCodeTable(buffer);
+    	return huffman.decompress(compressedMsg, buffer.position());
+    }
+
+    
     
     // -----------------------------------------------
     // Compression
@@ -88,13 +386,31 @@ public class Huffman {
      *         0-padding on the final byte.
      */
     public byte[] compress (String message) {
-    	BitWriter writeBits = new BitWriter();
+    	return compress(message, false);
+    }
+    
+    /**
+     * See {@link #compress(String message)}. When includeCodeTable is set, the
+     * output is prefixed with this Huffman's serialized code table (see
+     * {@link #getCodeTable()}) so that it can be decompressed by
+     * {@link #decode(byte[])} alone.
+     * 
+     * @param message String representing the corpus to compress.
+     * @param includeCodeTable Whether to prefix the output with the code table.
+     * @return {@code byte[]} representing the compressed corpus.
+     */
+    public byte[] compress (String message, boolean includeCodeTable) {
+    	byte[] codeTable = includeCodeTable ? getCodeTable() : new byte[0];
+    	BitWriter writeBits = new BitWriter(ByteBuffer.allocate(
+    			(int) Math.min(Integer.MAX_VALUE - 8, codeTable.length + message.length() * averageCodeLength / 8 + 16)), true);
+    	writeBits.buffer.put(codeTable);
         for (int i = 0; i < message.length(); i++) {
-        	writeBits.writeBits(encodingMap.get(message.charAt(i)));
+        	long code = getCode(message.charAt(i));
+        	writeBits.writeBits(code >>> 6, (int) code & 0x3F);
         }
         
-        writeBits.writeBits(encodingMap.get(ETB_CHAR));
-        
+        long code = getCode(ETB_CHAR);
+        writeBits.writeBits(code >>> 6, (int) code & 0x3F);
         
         return writeBits.byteArray();
     }
@@ -116,30 +432,405 @@ public class Huffman {
      * @return Decompressed String representation of the compressed bytecode message.
      */
     public String decompress (byte[] compressedMsg) {
-        BitReader bitReader = new BitReader(compressedMsg);
-        String message = "";
-        while(!bitReader.EOF()) {
-        	HuffNode current = trieRoot;
-        	while(!current.isLeaf()) {
-        		if(bitReader.readBit() == 1) {
-        			current = current.oneChild;
-        		} else {
-        			current = current.zeroChild;
-        		}
+        return decompress(compressedMsg, 0);
+    }
+    
+    private String decompress (byte[] compressedMsg, int offset) {
+        BitReader bitReader = new BitReader(ByteBuffer.wrap(compressedMsg, offset, compressedMsg.length - offset));
+        long totalBits = (long) (compressedMsg.length - offset) * 8;
+        StringBuilder message = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8,
+        		totalBits / Math.max(1.0, averageCodeLength) + 16));
+        while (true) {
+        	bitReader.refill();
+        	int decoded = decodeSymbol(bitReader.window, bitReader.available);
+        	if (decoded < 0) {
+        		break;
         	}
+        	bitReader.consume(decoded >>> 16);
         	
-        	if(current.character == ETB_CHAR) {
+        	char character = (char) decoded;
+        	if(character == ETB_CHAR) {
         		break;
         	}
         	
-        	message += current.character;
+        	message.append(character);
         }
         
-        
-        return message;
-        
-        
-        
+        return message.toString();
+    }
+    
+    
+    // -----------------------------------------------
+    // Block Compression
+    // -----------------------------------------------
+    
+    // Default number of characters per independently decodable block
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    
+    /**
+     * See {@link #compressBlocks(String message, int blockSize, ForkJoinPool pool)}.
+     * Uses blocks of DEFAULT_BLOCK_SIZE characters on the common ForkJoinPool.
+     */
+    public byte[] compressBlocks (String message) {
+    	return compressBlocks(message, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Compresses the given message as a sequence of independently decodable
+     * blocks, each compressed in parallel on the given pool with this Huffman's
+     * Encoding Map.
+     * 
+     * @param message String representing the corpus to compress.
+     * @param blockSize Maximum number of characters per block.
+     * @param pool The pool on which blocks are compressed.
+     * @return {@code byte[]} representing the compressed corpus. Formatted as:
+     *         (1) a 4-byte block count, (2) the block index, holding for each
+     *         block a 4-byte character count and a 4-byte compressed length,
+     *         (3) each block as produced by {@link #compress(String)}.
+     */
+    public byte[] compressBlocks (String message, int blockSize, ForkJoinPool pool) {
+    	if (blockSize <= 0) {
+    		throw new IllegalArgumentException("Block size must be positive");
+    	}
+    	int blockCount = Math.max(1, (message.length() + blockSize - 1) / blockSize);
+    	byte[][] blocks = new byte[blockCount][];
+    	pool.invoke(new BlockTask(0, blockCount, b -> {
+    		int start = b * blockSize;
+    		blocks[b] = compress(message.substring(start, Math.min(message.length(), start + blockSize)));
+    	}));
+    	
+    	int indexLength = 4 + 8 * blockCount;
+    	long totalLength = indexLength;
+    	for (byte[] block : blocks) {
+    		totalLength += block.length;
+    	}
+    	if (totalLength > Integer.MAX_VALUE - 8) {
+    		throw new IllegalArgumentException("Compressed message too large for a single array");
+    	}
+    	ByteBuffer result = ByteBuffer.allocate((int) totalLength);
+    	result.putInt(blockCount);
+    	for (int b = 0; b < blockCount; b++) {
+    		int start = b * blockSize;
+    		result.putInt(Math.min(message.length(), start + blockSize) - start);
+    		result.putInt(blocks[b].length);
+    	}
+    	for (byte[] block : blocks) {
+    		result.put(block);
+    	}
+    	return result.array();
+    }
+    
+    /**
+     * See {@link #decompressBlocks(byte[] compressedMsg, ForkJoinPool pool)}.
+     * Decompresses on the common ForkJoinPool.
+     */
+    public String decompressBlocks (byte[] compressedMsg) {
+    	return decompressBlocks(compressedMsg, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Decompresses a message produced by {@link #compressBlocks(String, int, ForkJoinPool)},
+     * decoding its blocks in parallel on the given pool.
+     * 
+     * @param compressedMsg {@code byte[]} holding the block-compressed message.
+     * @param pool The pool on which blocks are decompressed.
+     * @return Decompressed String representation of the message.
+     * @throws IllegalArgumentException if the block index is malformed, or a
+     *         block ends before its indexed length
+     */
+    public String decompressBlocks (byte[] compressedMsg, ForkJoinPool pool) {
+    	BlockIndex index = new BlockIndex(compressedMsg);
+    	char[] message = new char[(int) index.charOffsets[index.blockCount]];
+    	pool.invoke(new BlockTask(0, index.blockCount, b -> 
+    		decodeBlock(compressedMsg, index, b, message, (int) index.charOffsets[b])));
+    	return new String(message);
+    }
+    
+    /**
+     * Decompresses a single block of a message produced by
+     * {@link #compressBlocks(String, int, ForkJoinPool)}, without decoding any
+     * of the blocks before it.
+     * 
+     * @param compressedMsg {@code byte[]} holding the block-compressed message.
+     * @param block 0-indexed number of the block to decompress.
+     * @return Decompressed String representation of that block.
+     * @throws IllegalArgumentException if the block index is malformed, or the
+     *         block ends before its indexed length
+     */
+    public String decompressBlock (byte[] compressedMsg, int block) {
+    	BlockIndex index = new BlockIndex(compressedMsg);
+    	if (block < 0 || block >= index.blockCount) {
+    		throw new IndexOutOfBoundsException("Block " + block + " of " + index.blockCount);
+    	}
+    	char[] message = new char[(int) (index.charOffsets[block + 1] - index.charOffsets[block])];
+    	decodeBlock(compressedMsg, index, block, message, 0);
+    	return new String(message);
+    }
+    
+    /**
+     * Decodes the given block into message, starting at offset; the block's
+     * character count in the index bounds how much is written.
+     */
+    private void decodeBlock (byte[] compressedMsg, BlockIndex index, int block, char[] message, int offset) {
+    	int start = (int) index.byteOffsets[block];
+    	int end = offset + (int) (index.charOffsets[block + 1] - index.charOffsets[block]);
+    	BitReader bitReader = new BitReader(ByteBuffer.wrap(compressedMsg, start, (int) index.byteOffsets[block + 1] - start));
+    	while (offset < end) {
+    		bitReader.refill();
+    		int decoded = decodeSymbol(bitReader.window, bitReader.available);
+    		if (decoded < 0 || (char) decoded == ETB_CHAR) {
+    			throw new IllegalArgumentException("Block " + block + " ended before its indexed length");
+    		}
+    		bitReader.consume(decoded >>> 16);
+    		message[offset++] = (char) decoded;
+    	}
+    }
+    
+    /**
+     * Block index of a block-compressed message, as prefix sums of the
+     * character counts and compressed lengths of its blocks.
+     */
+    private static class BlockIndex {
+    	
+    	int blockCount;
+    	long[] charOffsets, byteOffsets;
+    	
+    	/**
+    	 * Reads the index at the start of the given message, checking it
+    	 * against the message's size so that decoding stays within bounds.
+    	 * 
+    	 * @throws IllegalArgumentException if the index is truncated or
+    	 *         inconsistent with the message's size
+    	 */
+    	BlockIndex (byte[] compressedMsg) {
+    		if (compressedMsg.length < 4) {
+    			throw new IllegalArgumentException("Truncated block index");
+    		}
+    		ByteBuffer buffer = ByteBuffer.wrap(compressedMsg);
+    		blockCount = buffer.getInt();
+    		if (blockCount <= 0 || blockCount > (compressedMsg.length - 4) / 8) {
+    			throw new IllegalArgumentException("Invalid block count " + blockCount);
+    		}
+    		charOffsets = new long[blockCount + 1];
+    		byteOffsets = new long[blockCount + 1];
+    		byteOffsets[0] = 4 + 8L * blockCount;
+    		for (int b = 0; b < blockCount; b++) {
+    			int chars = buffer.getInt(), bytes = buffer.getInt();
+    			// Every character takes at least a bit
+    			if (chars < 0 || bytes < 0 || chars > 8L * bytes) {
+    				throw new IllegalArgumentException("Invalid lengths of block " + b);
+    			}
+    			charOffsets[b + 1] = charOffsets[b] + chars;
+    			byteOffsets[b + 1] = byteOffsets[b] + bytes;
+    			if (byteOffsets[b + 1] > compressedMsg.length || charOffsets[b + 1] > Integer.MAX_VALUE - 8) {
+    				throw new IllegalArgumentException("Block index does not match the message");
+    			}
+    		}
+    	}
+    	
+    }
+    
+    /**
+     * Runs an action for each block in a range, splitting the range in half
+     * across the pool until single blocks remain.
+     */
+    private static class BlockTask extends RecursiveAction {
+    	
+    	private static final long serialVersionUID = 1L;
+    	
+    	private final int from, to;
+    	private final IntConsumer action;
+    	
+    	BlockTask (int from, int to, IntConsumer action) {
+    		this.from = from;
+    		this.to = to;
+    		this.action = action;
+    	}
+    	
+    	@Override
+    	protected void compute () {
+    		if (to - from == 1) {
+    			action.accept(from);
+    		} else {
+    			int mid = (from + to) >>> 1;
+    			invokeAll(new BlockTask(from, mid, action), new BlockTask(mid, to, action));
+    		}
+    	}
+    	
+    }
+    
+    
+    // -----------------------------------------------
+    // Interleaved Streams
+    // -----------------------------------------------
+    
+    // Number of bitstreams in the interleaved format
+    private static final int STREAMS = 4;
+    
+    /**
+     * Compresses the given message into 4 interleaved bitstreams, with the ith
+     * character coded into stream i % 4, so that decoding can advance all 4
+     * streams independently in each step instead of waiting on one long
+     * chain of code lengths.
+     * 
+     * @param message String representing the corpus to compress.
+     * @return {@code byte[]} representing the compressed corpus. Formatted as:
+     *         (1) the 4-byte character count of the message, (2) the 4-byte
+     *         compressed lengths of the first 3 streams, (3) the 4 streams,
+     *         each 0-padded to a whole byte. No ETB character is written, as
+     *         the character count marks the end.
+     */
+    public byte[] compressInterleaved (String message) {
+    	BitWriter[] writers = new BitWriter[STREAMS];
+    	for (int s = 0; s < STREAMS; s++) {
+    		writers[s] = new BitWriter(ByteBuffer.allocate(
+    				(int) Math.min(Integer.MAX_VALUE - 8, message.length() * averageCodeLength / (8 * STREAMS) + 16)), true);
+    	}
+    	for (int i = 0; i < message.length(); i++) {
+    		long code = getCode(message.charAt(i));
+    		writers[i & (STREAMS - 1)].writeBits(code >>> 6, (int) code & 0x3F);
+    	}
+    	
+    	byte[][] streams = new byte[STREAMS][];
+    	long totalLength = 4 * STREAMS;
+    	for (int s = 0; s < STREAMS; s++) {
+    		streams[s] = writers[s].byteArray();
+    		totalLength += streams[s].length;
+    	}
+    	if (totalLength > Integer.MAX_VALUE - 8) {
+    		throw new IllegalArgumentException("Compressed message too large for a single array");
+    	}
+    	ByteBuffer result = ByteBuffer.allocate((int) totalLength);
+    	result.putInt(message.length());
+    	for (int s = 0; s < STREAMS - 1; s++) {
+    		result.putInt(streams[s].length);
+    	}
+    	for (byte[] stream : streams) {
+    		result.put(stream);
+    	}
+    	return result.array();
+    }
+    
+    /**
+     * Decompresses a message produced by {@link #compressInterleaved(String)}.
+     * Each step refills all 4 streams' bit windows, then decodes as many
+     * characters from each as a full window is guaranteed to hold.
+     * 
+     * @param compressedMsg {@code byte[]} holding the interleaved message.
+     * @return Decompressed String representation of the message.
+     * @throws IllegalArgumentException if the header is truncated or
+     *         inconsistent with the message's size, or the streams end before
+     *         the message
+     */
+    public String decompressInterleaved (byte[] compressedMsg) {
+    	int start = 4 * STREAMS;
+    	if (compressedMsg.length < start) {
+    		throw new IllegalArgumentException("Truncated interleaved stream header");
+    	}
+    	ByteBuffer header = ByteBuffer.wrap(compressedMsg);
+    	int length = header.getInt();
+    	// Every character takes at least a bit
+    	if (length < 0 || length > 8L * (compressedMsg.length - start)) {
+    		throw new IllegalArgumentException("Invalid interleaved message length " + length);
+    	}
+    	BitReader[] readers = new BitReader[STREAMS];
+    	for (int s = 0; s < STREAMS; s++) {
+    		int streamLength = (s < STREAMS - 1) ? header.getInt() : compressedMsg.length - start;
+    		if (streamLength < 0 || streamLength > compressedMsg.length - start) {
+    			throw new IllegalArgumentException("Invalid length " + streamLength + " of interleaved stream " + s);
+    		}
+    		readers[s] = new BitReader(ByteBuffer.wrap(compressedMsg, start, streamLength));
+    		start += streamLength;
+    	}
+    	
+    	BitReader r0 = readers[0], r1 = readers[1], r2 = readers[2], r3 = readers[3];
+    	char[] message = new char[length];
+    	// A refilled window holds at least REFILL_BITS bits, or the rest of its stream
+    	int perRefill = Math.max(1, BitReader.REFILL_BITS / Math.max(1, maxCodeLength));
+    	int step = STREAMS * perRefill;
+    	int i = 0;
+    	for (int end = length - length % step; i < end; ) {
+    		r0.refill();
+    		r1.refill();
+    		r2.refill();
+    		r3.refill();
+    		for (int k = 0; k < perRefill; k++, i += STREAMS) {
+    			int d0 = decodeSymbol(r0.window, r0.available);
+    			int d1 = decodeSymbol(r1.window, r1.available);
+    			int d2 = decodeSymbol(r2.window, r2.available);
+    			int d3 = decodeSymbol(r3.window, r3.available);
+    			if ((d0 | d1 | d2 | d3) < 0) {
+    				throw new IllegalArgumentException("Interleaved streams ended before character " + i);
+    			}
+    			r0.consume(d0 >>> 16);
+    			r1.consume(d1 >>> 16);
+    			r2.consume(d2 >>> 16);
+    			r3.consume(d3 >>> 16);
+    			message[i] = (char) d0;
+    			message[i + 1] = (char) d1;
+    			message[i + 2] = (char) d2;
+    			message[i + 3] = (char) d3;
+    		}
+    	}
+    	for (; i < length; i++) {
+    		BitReader reader = readers[i & (STREAMS - 1)];
+    		reader.refill();
+    		int decoded = decodeSymbol(reader.window, reader.available);
+    		if (decoded < 0) {
+    			throw new IllegalArgumentException("Interleaved streams ended before character " + i);
+    		}
+    		reader.consume(decoded >>> 16);
+    		message[i] = (char) decoded;
+    	}
+    	return new String(message);
+    }
+    
+    
+    // -----------------------------------------------
+    // Streaming Support
+    // -----------------------------------------------
+    
+    /**
+     * Returns the code of the given character, packed as
+     * (code bits << 6) | code length.
+     * 
+     * @throws IllegalArgumentException if c has no code in this Encoding Map
+     */
+    long getCode (char c) {
+    	long code = (c < encodingMap.length) ? encodingMap[c] : -1;
+    	if (code < 0) {
+    		throw new IllegalArgumentException("Character " + (int) c + " is not in the Encoding Map");
+    	}
+    	return code;
+    }
+    
+    /**
+     * Decodes the next character from a window of bits, as read by a
+     * {@link BitReader}.
+     * 
+     * @param window The upcoming bits of a message, left-aligned so that the
+     *        most significant bit is read first.
+     * @param available Number of valid bits in the window; the rest are 0.
+     * @return The decoded character in the low 16 bits and its code length in
+     *         the bits above, or -1 if the window holds too few bits for a code.
+     */
+    int decodeSymbol (long window, int available) {
+    	int index = (int) (window >>> (64 - TABLE_BITS));
+    	int entry = decodingTable[index];
+    	if (entry != 0) {
+    		return ((entry >>> 16) > available) ? -1 : entry;
+    	}
+    	int length;
+    	HuffNode current = tableOverflow[index];
+    	length = TABLE_BITS;
+    	while (!current.isLeaf()) {
+    		if (length >= available) {
+    			return -1;
+    		}
+    		current = ((window << length) < 0) ? current.oneChild : current.zeroChild;
+    		length++;
+    	}
+    	return (length << 16) | current.character;
     }
     
     
@@ -180,87 +871,203 @@ public class Huffman {
         
     }
     
-    private class BitReader {
+    /**
+     * Reads a message through a 64-bit window of upcoming bits, left-aligned so
+     * that the most significant bit is read next. The window is topped up a
+     * whole word at a time while at least 8 bytes remain in the buffer.
+     */
+    static class BitReader {
+    	
+    	// Number of bits a refilled window is guaranteed to hold while the
+    	// buffer lasts
+    	static final int REFILL_BITS = 57;
     	
-    	private int currentBit;
-    	private byte[] message;
+    	private final ByteBuffer buffer;
+    	long window;
+    	int available;
     	
-    	public BitReader(byte[] message) {
-    		this.message = message;
-    		currentBit = 0;
+    	BitReader(ByteBuffer buffer) {
+    		this.buffer = buffer;
     	}
     	
-    	public int readBit() {
-    		byte b = message[(currentBit/8)];
-    		int offSet = currentBit % 8;
-    		currentBit++;
-    		if ((b & (1 << (7-offSet))) != 0) {
-    			return 1;
+    	/**
+    	 * Tops the window up to at least REFILL_BITS bits (enough for any code) unless
+    	 * the buffer runs out first: as many whole bytes are taken as fit in
+    	 * the 64-bit window, which leaves it less than a byte short of full.
+    	 */
+    	void refill() {
+    		if (available >= REFILL_BITS) {
+    			return;
+    		}
+    		if (buffer.remaining() >= 8) {
+    			int position = buffer.position();
+    			// Bits past the whole bytes consumed are re-read on the next
+    			// refill; ORing the same values back in is harmless
+    			window |= buffer.getLong(position) >>> available;
+    			int consumed = (64 - available) >>> 3;
+    			buffer.position(position + consumed);
+    			available += consumed << 3;
     		} else {
-    			return 0;
+    			while (available < REFILL_BITS && buffer.hasRemaining()) {
+    				window |= (long) (buffer.get() & 0xFF) << (56 - available);
+    				available += 8;
+    			}
     		}
-    		
     	}
     	
-    	public boolean EOF() {
-    		return (currentBit/8) == message.length;
-    		
+    	void consume(int bits) {
+    		window <<= bits;
+    		available -= bits;
     	}
     	
-    	
     }
     
     
-    private class BitWriter {
+    /**
+     * Writes codes through a 64-bit accumulator, putting each completed word
+     * into the buffer at once. A growable BitWriter enlarges its buffer as
+     * needed; otherwise the owner must keep at least 8 bytes free before each
+     * write.
+     */
+    static class BitWriter {
     	
-    	ByteArrayOutputStream stream;
-    	byte buffer;
-    	int position;
+    	ByteBuffer buffer;
+    	private final boolean growable;
+    	private long accumulator;
+    	private int position;
     	
-    	public BitWriter() {
-    		stream = new ByteArrayOutputStream();
-    		buffer = 0;
-    		position = 0;
+    	BitWriter(ByteBuffer buffer, boolean growable) {
+    		this.buffer = buffer;
+    		this.growable = growable;
     	}
     	
-
-    	public void writeBit(int bit) {
-    		if (position == 8) {
-    			stream.write(buffer);
-    			position = 0;
-    			buffer = 0;
+    	/**
+    	 * Writes the lowest length bits of bits, most significant first.
+    	 */
+    	void writeBits(long bits, int length) {
+    		int free = 64 - position;
+    		if (length < free) {
+    			accumulator |= bits << (free - length);
+    			position += length;
+    		} else {
+    			int overflow = length - free;
+    			putWord(accumulator | (bits >>> overflow));
+    			accumulator = (overflow == 0) ? 0 : bits << (64 - overflow);
+    			position = overflow;
     		}
-    		if (bit == 1) {
-    			buffer |= 1 << (7 - position) ;
+    	}
+    	
+    	/**
+    	 * Writes out the bits of a final, partially filled word as whole bytes
+    	 * with 0-padding.
+    	 */
+    	void finish() {
+    		ensureCapacity(8);
+    		for (int shift = 56; position > 0; shift -= 8, position -= Math.min(8, position)) {
+    			buffer.put((byte) (accumulator >>> shift));
     		}
-    		position++;
+    		accumulator = 0;
     	}
     	
-    	public void writeBits(String bits) {
-    		for (int i = 0; i < bits.length(); i++) {
-    			if (bits.charAt(i) == '0') {
-    				writeBit(0);
-    			} else {
-    				writeBit(1);
-    			}
+    	byte[] byteArray() {
+    		finish();
+    		return Arrays.copyOf(buffer.array(), buffer.position());
+    	}
+    	
+    	private void putWord(long word) {
+    		ensureCapacity(8);
+    		buffer.putLong(word);
+    	}
+    	
+    	private void ensureCapacity(int bytes) {
+    		if (growable && buffer.remaining() < bytes) {
+    			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+    			buffer.flip();
+    			larger.put(buffer);
+    			buffer = larger;
     		}
     	}
     	
-    	public byte[] byteArray() {
-    		if (position > 0) {
-    			stream.write(buffer);
+    }
+    
+    
+    /**
+     * Fills the decoding table from the trie: every leaf within TABLE_BITS of
+     * the root claims all table entries prefixed by its code, and every
+     * internal node at depth TABLE_BITS becomes an overflow entry. (A lone
+     * ETB_CHAR leaf at the root claims every entry with a length of 0.)
+     */
+    private void buildDecodingTable() {
+    	decodingTable = new int[1 << TABLE_BITS];
+    	tableOverflow = new HuffNode[1 << TABLE_BITS];
+    	fillTable(trieRoot, 0, 0);
+    }
+    
+    private void fillTable(HuffNode current, int depth, int prefix) {
+    	if (current.isLeaf()) {
+    		int start = prefix << (TABLE_BITS - depth);
+    		Arrays.fill(decodingTable, start, start + (1 << (TABLE_BITS - depth)), (depth << 16) | current.character);
+    	} else if (depth == TABLE_BITS) {
+    		tableOverflow[prefix] = current;
+    	} else {
+    		fillTable(current.zeroChild, depth + 1, prefix << 1);
+    		fillTable(current.oneChild, depth + 1, (prefix << 1) | 1);
+    	}
+    }
+    
+    /**
+     * Assigns canonical codes from the given code lengths: characters are
+     * ordered by code length, then character, and each receives the next
+     * binary number of its length. Rebuilds the Huffman Trie, Encoding Map
+     * and decoding table to match.
+     */
+    private void assignCanonicalCodes(TreeMap<Character, Integer> codeLengths) {
+    	encodingMap = new long[codeLengths.lastKey() + 1];
+    	Arrays.fill(encodingMap, -1);
+    	trieRoot = new HuffNode('\0', 0);
+    	List<Character> symbols = canonicalOrder(codeLengths);
+    	long code = 0;
+    	int previousLength = 0;
+    	for (char c : symbols) {
+    		int length = codeLengths.get(c);
+    		code <<= (length - previousLength);
+    		previousLength = length;
+    		
+    		HuffNode current = trieRoot;
+    		for (int bit = length - 1; bit >= 0; bit--) {
+    			if (((code >>> bit) & 1) == 1) {
+    				if (current.oneChild == null) {
+    					current.oneChild = new HuffNode('\0', 0);
+    				}
+    				current = current.oneChild;
+    			} else {
+    				if (current.zeroChild == null) {
+    					current.zeroChild = new HuffNode('\0', 0);
+    				}
+    				current = current.zeroChild;
+    			}
     		}
-    		return stream.toByteArray();
+    		current.character = c;
+    		encodingMap[c] = (code << 6) | length;
+    		code++;
     	}
+    	maxCodeLength = previousLength;
+    	buildDecodingTable();
     }
     
+    private static List<Character> canonicalOrder(Map<Character, Integer> codeLengths) {
+    	List<Character> symbols = new ArrayList<>(codeLengths.keySet());
+    	symbols.sort(Comparator.comparingInt((Character c) -> codeLengths.get(c))
+    			.thenComparing(Comparator.naturalOrder()));
+    	return symbols;
+    }
     
-    private void buildMap(HuffNode current, String path) {
+    private void buildLengths(HuffNode current, int depth, Map<Character, Integer> codeLengths) {
     	if (current.zeroChild == null) {
-    		encodingMap.put(current.character, path);
+    		codeLengths.put(current.character, depth);
     	} else {
-    		buildMap(current.zeroChild, path + "0");
-    		buildMap(current.oneChild, path + "1");
+    		buildLengths(current.zeroChild, depth + 1, codeLengths);
+    		buildLengths(current.oneChild, depth + 1, codeLengths);
     	}
 
     }
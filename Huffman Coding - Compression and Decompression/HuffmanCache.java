@@ -0,0 +1,184 @@
+/**
+ * HuffmanCache.java
+ */
+
+package main.compression;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe registry of {@link Huffman} models keyed by a fingerprint of
+ * their corpus' character distribution, so that identical or near-identical
+ * corpora share a single (immutable) Huffman instance instead of each
+ * rebuilding its own. The least recently used models are evicted once the
+ * registry holds its maximum number of entries.
+ * 
+ * Fingerprints quantize each character's share of the corpus on a log
+ * scale, in steps of a fraction of a bit of ideal code length; corpora with
+ * the same characters whose shares round to the same steps are considered
+ * the same. With a resolution of 0 the exact counts are used instead.
+ */
+public class HuffmanCache {
+    
+    // Default fingerprint resolution, in steps per bit of ideal code length
+    public static final int DEFAULT_STEPS_PER_BIT = 4;
+    
+    private final int maxEntries, stepsPerBit;
+    private final LinkedHashMap<Fingerprint, Huffman> models;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+    
+    /**
+     * See {@link #HuffmanCache(int maxEntries, int stepsPerBit)}. Uses the
+     * DEFAULT_STEPS_PER_BIT fingerprint resolution.
+     */
+    public HuffmanCache (int maxEntries) {
+        this(maxEntries, DEFAULT_STEPS_PER_BIT);
+    }
+    
+    /**
+     * Constructs a new, empty HuffmanCache.
+     * 
+     * @param maxEntries Maximum number of models held before the least
+     *        recently used is evicted.
+     * @param stepsPerBit Resolution of corpus fingerprints, in steps per bit of
+     *        ideal code length; 0 fingerprints the exact character counts.
+     */
+    public HuffmanCache (int maxEntries, int stepsPerBit) {
+        if (maxEntries <= 0 || stepsPerBit < 0) {
+            throw new IllegalArgumentException("maxEntries must be positive and stepsPerBit non-negative");
+        }
+        this.maxEntries = maxEntries;
+        this.stepsPerBit = stepsPerBit;
+        this.models = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Fingerprint, Huffman> eldest) {
+                if (size() > HuffmanCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Returns the cached Huffman model for corpora with the same fingerprint as
+     * the given one, building and caching a model from this corpus if there is
+     * none.
+     * 
+     * @param corpus A String representing a message / document corpus, as in
+     *        {@link Huffman#Huffman(String)}.
+     * @return A Huffman model for the corpus' character distribution.
+     */
+    public Huffman get (String corpus) {
+        int[] characterCount = Huffman.countCharacters(corpus);
+        Fingerprint key = new Fingerprint(characterCount, corpus.length(), stepsPerBit);
+        synchronized (models) {
+            Huffman model = models.get(key);
+            if (model != null) {
+                hits.increment();
+                return model;
+            }
+        }
+        misses.increment();
+        // Built outside the lock so that misses don't serialize each other;
+        // if another thread raced us here, keep the model it cached
+        Huffman model = new Huffman(characterCount, Integer.MAX_VALUE);
+        synchronized (models) {
+            Huffman existing = models.putIfAbsent(key, model);
+            return (existing != null) ? existing : model;
+        }
+    }
+    
+    /**
+     * @return Number of lookups answered by a cached model.
+     */
+    public long hits () {
+        return hits.sum();
+    }
+    
+    /**
+     * @return Number of lookups that had to build a new model.
+     */
+    public long misses () {
+        return misses.sum();
+    }
+    
+    /**
+     * @return Number of models evicted to respect the maximum size.
+     */
+    public long evictions () {
+        return evictions.sum();
+    }
+    
+    /**
+     * @return Number of models currently cached.
+     */
+    public int size () {
+        synchronized (models) {
+            return models.size();
+        }
+    }
+    
+    /**
+     * Removes every cached model; counters are left untouched.
+     */
+    public void clear () {
+        synchronized (models) {
+            models.clear();
+        }
+    }
+    
+    /**
+     * Fingerprint of a corpus' character distribution: the (character,
+     * quantized count) pairs of every character present, with a precomputed
+     * 64-bit hash.
+     */
+    private static class Fingerprint {
+        
+        private final int[] entries;
+        private final long hash;
+        
+        Fingerprint (int[] characterCount, int total, int stepsPerBit) {
+            int distinct = 0;
+            for (int count : characterCount) {
+                if (count > 0) {
+                    distinct++;
+                }
+            }
+            entries = new int[2 * distinct];
+            long h = 0xcbf29ce484222325L;
+            int i = 0;
+            for (int c = 0; c < characterCount.length; c++) {
+                if (characterCount[c] > 0) {
+                    int count = characterCount[c];
+                    int quantized = (stepsPerBit == 0) ? count
+                        : (int) Math.round(-Math.log((double) count / total) / Math.log(2) * stepsPerBit);
+                    entries[i++] = c;
+                    entries[i++] = quantized;
+                    h = (h ^ c) * 0x100000001b3L;
+                    h = (h ^ quantized) * 0x100000001b3L;
+                }
+            }
+            hash = h;
+        }
+        
+        @Override
+        public boolean equals (Object other) {
+            if (other == this) { return true; }
+            if (!(other instanceof Fingerprint)) { return false; }
+            Fingerprint otherCast = (Fingerprint) other;
+            return this.hash == otherCast.hash && Arrays.equals(this.entries, otherCast.entries);
+        }
+        
+        @Override
+        public int hashCode () {
+            return Long.hashCode(hash);
+        }
+        
+    }
+    
+}
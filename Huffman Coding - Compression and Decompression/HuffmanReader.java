@@ -0,0 +1,108 @@
+/**
+ * HuffmanReader.java
+ */
+
+package main.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * HuffmanReaders decompress a message produced by {@link Huffman#compress(String)}
+ * or {@link HuffmanWriter}, reading the compressed bytes from an InputStream
+ * or channel through a fixed-size buffer so that messages of any length are
+ * decompressed in bounded memory. The reader reaches its end at the ETB
+ * character that terminates the message.
+ */
+public class HuffmanReader extends Reader {
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final Huffman huffman;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Huffman.BitReader bits;
+    private boolean inputDone, finished, closed;
+    
+    /**
+     * Constructs a new HuffmanReader decompressing from the given stream.
+     * 
+     * @param huffman The Huffman Encoding Map that compressed the message
+     * @param in The stream holding the compressed bytes; closed along with
+     *        this reader.
+     */
+    public HuffmanReader (Huffman huffman, InputStream in) {
+        this(huffman, Channels.newChannel(in));
+    }
+    
+    /**
+     * Constructs a new HuffmanReader decompressing from the given (blocking) channel.
+     * 
+     * @param huffman The Huffman Encoding Map that compressed the message
+     * @param channel The channel holding the compressed bytes; closed along
+     *        with this reader.
+     */
+    public HuffmanReader (Huffman huffman, ReadableByteChannel channel) {
+        this.huffman = huffman;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+        this.bits = new Huffman.BitReader(buffer);
+    }
+    
+    @Override
+    public int read (char[] cbuf, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("HuffmanReader is closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < len && !finished) {
+            refill();
+            int decoded = huffman.decodeSymbol(bits.window, bits.available);
+            if (decoded < 0) {
+                // Input ended without an ETB character
+                finished = true;
+                break;
+            }
+            bits.consume(decoded >>> 16);
+            char c = (char) decoded;
+            if (c == Huffman.ETB_CHAR) {
+                finished = true;
+                break;
+            }
+            cbuf[off + n++] = c;
+        }
+        return (n == 0 && finished) ? -1 : n;
+    }
+    
+    @Override
+    public void close () throws IOException {
+        closed = true;
+        channel.close();
+    }
+    
+    /**
+     * Tops the bit window up to at least 57 bits (enough for any code) unless
+     * the input is exhausted, reading more from the channel whenever fewer than
+     * a word's worth of bytes are buffered.
+     */
+    private void refill () throws IOException {
+        while (!inputDone && buffer.remaining() < 8) {
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                inputDone = true;
+            }
+        }
+        bits.refill();
+    }
+    
+}
@@ -0,0 +1,134 @@
+/**
+ * HuffmanWriter.java
+ */
+
+package main.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * HuffmanWriters compress the characters written to them with a Huffman
+ * Encoding Map, streaming the compressed bytes to an OutputStream or
+ * channel through a fixed-size buffer so that messages of any length are
+ * compressed in bounded memory. Closing the writer terminates the message
+ * with the ETB character, so the bytes produced are the same as those of
+ * {@link Huffman#compress(String)} over everything written.
+ */
+public class HuffmanWriter extends Writer {
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final Huffman huffman;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Huffman.BitWriter bits;
+    private boolean closed;
+    
+    /**
+     * Constructs a new HuffmanWriter compressing onto the given stream.
+     * 
+     * @param huffman The Huffman Encoding Map to compress with
+     * @param out The stream receiving the compressed bytes; closed along with
+     *        this writer.
+     */
+    public HuffmanWriter (Huffman huffman, OutputStream out) {
+        this(huffman, Channels.newChannel(out));
+    }
+    
+    /**
+     * Constructs a new HuffmanWriter compressing onto the given (blocking) channel.
+     * 
+     * @param huffman The Huffman Encoding Map to compress with
+     * @param channel The channel receiving the compressed bytes; closed along
+     *        with this writer.
+     */
+    public HuffmanWriter (Huffman huffman, WritableByteChannel channel) {
+        this.huffman = huffman;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.bits = new Huffman.BitWriter(buffer, false);
+    }
+    
+    @Override
+    public void write (int c) throws IOException {
+        ensureOpen();
+        writeCode(huffman.getCode((char) c));
+    }
+    
+    @Override
+    public void write (char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off; i < off + len; i++) {
+            writeCode(huffman.getCode(cbuf[i]));
+        }
+    }
+    
+    @Override
+    public void write (String str, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off; i < off + len; i++) {
+            writeCode(huffman.getCode(str.charAt(i)));
+        }
+    }
+    
+    /**
+     * Writes all completed words to the underlying channel; bits of a
+     * partially filled final word are held back until more are written or
+     * the writer is closed.
+     */
+    @Override
+    public void flush () throws IOException {
+        ensureOpen();
+        drain();
+    }
+    
+    /**
+     * Terminates the message with the ETB character, pads and writes the
+     * final byte, then closes the underlying channel.
+     */
+    @Override
+    public void close () throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeCode(huffman.getCode(Huffman.ETB_CHAR));
+            if (buffer.remaining() < 8) {
+                drain();
+            }
+            bits.finish();
+            drain();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+    
+    private void writeCode (long code) throws IOException {
+        // A code fills at most one word, so 8 free bytes always suffice
+        if (buffer.remaining() < 8) {
+            drain();
+        }
+        bits.writeBits(code >>> 6, (int) code & 0x3F);
+    }
+    
+    private void drain () throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private void ensureOpen () throws IOException {
+        if (closed) {
+            throw new IOException("HuffmanWriter is closed");
+        }
+    }
+    
+}
@@ -0,0 +1,91 @@
+/**
+ * AdaptiveHuffmanTest.java
+ */
+
+package main.compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveHuffmanTest {
+
+    /**
+     * Returns a message of the given length whose characters, drawn from
+     * the given alphabet, follow Zipf (s = 1) frequencies in its order.
+     */
+    private static String skewedMessage (String alphabet, int length, long seed) {
+        double[] cumulative = new double[alphabet.length()];
+        double total = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        Random rng = new Random(seed);
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            double u = rng.nextDouble() * total;
+            int c = 0;
+            while (cumulative[c] < u) {
+                c++;
+            }
+            message.append(alphabet.charAt(c));
+        }
+        return message.toString();
+    }
+
+    private static void assertRoundTrip (String message) {
+        AdaptiveHuffman huffman = new AdaptiveHuffman();
+        assertEquals(message, huffman.decompress(huffman.compress(message)));
+    }
+
+    @Test
+    public void testEmptyMessage () {
+        assertRoundTrip("");
+    }
+
+    @Test
+    public void testRepeatedCharacter () {
+        assertRoundTrip("a");
+        assertRoundTrip("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+        // A 1-bit code per character after the first, well under a byte each
+        String message = "z".repeat(10000);
+        byte[] compressed = new AdaptiveHuffman().compress(message);
+        assertTrue(compressed.length < 10000 / 8 + 8);
+        assertEquals(message, new AdaptiveHuffman().decompress(compressed));
+    }
+
+    @Test
+    public void testWideCharacters () {
+        // Characters above 0xFF arrive through the NYT escape as raw 16 bits
+        assertRoundTrip("Ā");
+        assertRoundTrip("naïve 中文 αβγ ￿ā中中￿");
+        assertRoundTrip(skewedMessage("中Āaα￿bÿā", 5000, 1));
+    }
+
+    @Test
+    public void testLongSkewedMessage () {
+        String alphabet = "etaoinshrdlcumwfgypbvkjxqz ETAOINSHRDLCUMWFGYPBVKJXQZ.,;:!?0123456789";
+        String message = skewedMessage(alphabet, 200000, 2);
+        byte[] compressed = new AdaptiveHuffman().compress(message);
+        assertEquals(message, new AdaptiveHuffman().decompress(compressed));
+        // Adapts to the skew, spending well under 8 bits per character
+        assertTrue(compressed.length < message.length() * 6 / 8);
+    }
+
+    @Test
+    public void testSiblingPropertyAfterEveryUpdate () {
+        String message = skewedMessage("abcdefghijklmnopĀ中", 3000, 3) + "ponmlkjihgfedcba".repeat(50);
+        AdaptiveHuffman.AdaptiveTrie trie = new AdaptiveHuffman.AdaptiveTrie();
+        Huffman.BitWriter writeBits = new Huffman.BitWriter(ByteBuffer.allocate(16), true);
+        assertTrue(trie.hasSiblingProperty());
+        for (int i = 0; i < message.length(); i++) {
+            trie.encode(message.charAt(i), writeBits);
+            assertTrue(trie.hasSiblingProperty(), "after character " + i);
+        }
+    }
+
+}
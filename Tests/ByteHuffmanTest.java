@@ -0,0 +1,81 @@
+/**
+ * ByteHuffmanTest.java
+ */
+
+package main.compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteHuffmanTest {
+
+    private static byte[] randomBytes (int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns a corpus holding byte value b 2^(b / 16) times, so the rarest
+     * bytes get codes longer than a single decoding table probe resolves.
+     */
+    private static byte[] skewedCorpus () {
+        ByteBuffer corpus = ByteBuffer.allocate(16 * ((1 << 16) - 1));
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < (1 << (b / 16)); i++) {
+                corpus.put((byte) b);
+            }
+        }
+        return corpus.array();
+    }
+
+    @Test
+    public void testEveryByteValue () {
+        byte[] every = new byte[256];
+        for (int b = 0; b < 256; b++) {
+            every[b] = (byte) b;
+        }
+        for (byte[] corpus : new byte[][] {every, randomBytes(10000, 1), skewedCorpus()}) {
+            ByteHuffman huffman = new ByteHuffman(corpus);
+            for (byte[] message : new byte[][] {every, randomBytes(5000, 2), corpus}) {
+                assertArrayEquals(message, huffman.decompress(huffman.compress(message)));
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty () {
+        ByteHuffman empty = new ByteHuffman(new byte[0]);
+        assertArrayEquals(new byte[0], empty.decompress(empty.compress(new byte[0])));
+        assertThrows(IllegalArgumentException.class, () -> empty.compress(new byte[] {0}));
+
+        ByteHuffman huffman = new ByteHuffman(randomBytes(1000, 3));
+        assertArrayEquals(new byte[0], huffman.decompress(huffman.compress(new byte[0])));
+    }
+
+    @Test
+    public void testSingleByteValue () {
+        byte[] corpus = new byte[100];
+        ByteHuffman huffman = new ByteHuffman(corpus);
+        assertArrayEquals(corpus, huffman.decompress(huffman.compress(corpus)));
+        assertThrows(IllegalArgumentException.class, () -> huffman.compress(new byte[] {1}));
+    }
+
+    @Test
+    public void testBuffers () {
+        byte[] bytes = randomBytes(1000, 4);
+        ByteHuffman huffman = new ByteHuffman(ByteBuffer.wrap(bytes, 100, 800));
+        // Only the remaining bytes are compressed, and the position is kept
+        ByteBuffer message = ByteBuffer.wrap(bytes, 200, 500);
+        byte[] compressed = huffman.compress(message);
+        assertEquals(200, message.position());
+        assertArrayEquals(Arrays.copyOfRange(bytes, 200, 700), huffman.decompress(compressed));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 200, 700), huffman.decompress(ByteBuffer.wrap(compressed)));
+    }
+
+}
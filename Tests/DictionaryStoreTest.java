@@ -0,0 +1,129 @@
+/**
+ * DictionaryStoreTest.java
+ */
+
+package main.distle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DictionaryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Returns the given number of distinct random lower-case words, including
+     * a few non-ASCII ones.
+     */
+    private static Set<String> randomWords (int count, long seed) {
+        Random rng = new Random(seed);
+        String alphabet = "abcdefghijklmnopqrstuvwxyzéü中";
+        Set<String> words = new HashSet<>();
+        while (words.size() < count) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 1 + rng.nextInt(10); i > 0; i--) {
+                word.append(alphabet.charAt(rng.nextInt(alphabet.length())));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static void assertHoldsExactly (Set<String> words, DictionaryStore store) {
+        assertEquals(words.size(), store.size());
+        assertEquals(new TreeSet<>(words), new TreeSet<>(Arrays.asList(store.getWords())));
+        for (String word : words) {
+            assertTrue(store.contains(word), word);
+            assertEquals(word, store.get(store.indexOf(word)));
+        }
+    }
+
+
+    // -----------------------------------------------
+    // Round Trips
+    // -----------------------------------------------
+
+    @Test
+    public void testSaveAndLoad () throws IOException {
+        for (int count : new int[] {0, 1, 2, 5, 1000}) {
+            Set<String> words = randomWords(count, count);
+            DictionaryStore store = DictionaryStore.build(words);
+            assertHoldsExactly(words, store);
+
+            Path file = dir.resolve("words" + count + ".store");
+            store.save(file);
+            DictionaryStore loaded = DictionaryStore.load(file);
+            assertHoldsExactly(words, loaded);
+            assertEquals(store.getFingerprint(), loaded.getFingerprint());
+            assertArrayEquals(store.getWords(), loaded.getWords());
+        }
+    }
+
+    @Test
+    public void testContainsRejectsNonWords () {
+        Set<String> words = randomWords(1000, 7);
+        DictionaryStore store = DictionaryStore.build(words);
+        for (String word : randomWords(5000, 8)) {
+            assertEquals(words.contains(word), store.contains(word), word);
+            assertEquals(words.contains(word), store.asSet().contains(word), word);
+        }
+        assertFalse(store.contains(""));
+        assertFalse(DictionaryStore.build(Collections.emptySet()).contains("a"));
+    }
+
+    @Test
+    public void testLoadText () throws IOException {
+        // A word list that starts with the letters of the old magic number
+        Path file = dir.resolve("words.txt");
+        Files.write(file, Arrays.asList("DSTS", "Dog", "cat"), StandardCharsets.UTF_8);
+        assertHoldsExactly(new HashSet<>(Arrays.asList("dsts", "dog", "cat")), DictionaryStore.load(file));
+
+        Path empty = dir.resolve("empty.txt");
+        Files.write(empty, new byte[0]);
+        assertEquals(0, DictionaryStore.load(empty).size());
+    }
+
+
+    // -----------------------------------------------
+    // Malformed Stores
+    // -----------------------------------------------
+
+    @Test
+    public void testLoadTruncated () throws IOException {
+        Path file = dir.resolve("words.store");
+        DictionaryStore.build(randomWords(50, 9)).save(file);
+        byte[] valid = Files.readAllBytes(file);
+        for (int length = 4; length < valid.length; length += (length < 64) ? 1 : 37) {
+            Files.write(file, Arrays.copyOf(valid, length));
+            assertThrows(IOException.class, () -> DictionaryStore.load(file));
+        }
+    }
+
+    @Test
+    public void testLoadCorrupt () throws IOException {
+        Path file = dir.resolve("words.store");
+        DictionaryStore.build(randomWords(50, 10)).save(file);
+        byte[] valid = Files.readAllBytes(file);
+        // Word, bucket and slot counts, the first and second arena offsets, and a slot
+        int slotsAt = 24 + 4 * (51 + 12);
+        for (int offset : new int[] {4, 8, 12, 24, 28, slotsAt}) {
+            for (int value : new int[] {-2, Integer.MAX_VALUE, Integer.MIN_VALUE, 1000}) {
+                byte[] corrupt = valid.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, value);
+                Files.write(file, corrupt);
+                assertThrows(IOException.class, () -> DictionaryStore.load(file), offset + " = " + value);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * EditDistanceUtilsTest.java
+ */
+
+package main.distle;
+
+import static main.distle.EditDistanceUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class EditDistanceUtilsTest {
+
+    private static final String[][] PAIRS = {
+        {"", ""}, {"", "abc"}, {"abc", ""}, {"abc", "abc"}, {"ca", "abc"},
+        {"ab", "ba"}, {"kitten", "sitting"}, {"distle", "listen"}, {"a", "bcdefgh"}
+    };
+    // Pattern lengths around the 64-bit block boundaries of the bit-parallel kernel
+    private static final int[] LENGTHS = {0, 1, 2, 5, 31, 62, 63, 64, 65, 66, 100, 127, 128, 129, 200};
+    // A small Latin-1 alphabet, so that strings share many characters, and
+    // one with characters past 0xFF, which the kernel scans the pattern for
+    private static final String LATIN = "abcde", WIDE = "ab\u00e9\u0101\u4e2d\u03b1";
+
+    /**
+     * Returns a random string of the given length over the given alphabet.
+     */
+    private static String randomString (String alphabet, int length, Random rng) {
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            s.append(alphabet.charAt(rng.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the given string with a few random substitutions, insertions,
+     * deletions and adjacent transpositions over the given alphabet.
+     */
+    private static String mutate (String s, String alphabet, Random rng) {
+        StringBuilder t = new StringBuilder(s);
+        for (int edits = rng.nextInt(6); edits > 0; edits--) {
+            int at = rng.nextInt(t.length() + 1);
+            char c = alphabet.charAt(rng.nextInt(alphabet.length()));
+            switch (rng.nextInt(4)) {
+                case 0: if (at < t.length()) { t.setCharAt(at, c); } break;
+                case 1: t.insert(at, c); break;
+                case 2: if (at < t.length()) { t.deleteCharAt(at); } break;
+                default: transpose(t, at); break;
+            }
+        }
+        return t.toString();
+    }
+
+    /**
+     * Swaps the characters at i - 1 and i, if both exist.
+     */
+    private static void transpose (StringBuilder t, int i) {
+        if (i > 0 && i < t.length()) {
+            char c = t.charAt(i);
+            t.setCharAt(i, t.charAt(i - 1));
+            t.setCharAt(i - 1, c);
+        }
+    }
+
+    /**
+     * Returns the distance in the bottom-right cell of getEditDistTable.
+     */
+    private static int referenceDistance (String s0, String s1) {
+        return getEditDistTable(s0, s1)[s0.length()][s1.length()];
+    }
+
+
+    // -----------------------------------------------
+    // Distance
+    // -----------------------------------------------
+
+    @Test
+    public void testEditDistanceMatchesTable () {
+        Random rng = new Random(12);
+        for (String alphabet : new String[] {LATIN, WIDE}) {
+            for (int length0 : LENGTHS) {
+                for (int length1 : LENGTHS) {
+                    for (int trial = 0; trial < 4; trial++) {
+                        String s0 = randomString(alphabet, length0, rng), s1 = randomString(alphabet, length1, rng);
+                        assertEquals(referenceDistance(s0, s1), editDistance(s0, s1), s0 + " -> " + s1);
+                    }
+                }
+                for (int trial = 0; trial < 20; trial++) {
+                    String s0 = randomString(alphabet, length0, rng), s1 = mutate(s0, alphabet, rng);
+                    assertEquals(referenceDistance(s0, s1), editDistance(s0, s1), s0 + " -> " + s1);
+                    assertEquals(referenceDistance(s1, s0), editDistance(s1, s0), s1 + " -> " + s0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEditDistanceTranspositionAcrossBlocks () {
+        Random rng = new Random(64);
+        for (String alphabet : new String[] {LATIN, WIDE}) {
+            for (int length : new int[] {65, 66, 130, 200}) {
+                for (int boundary = 64; boundary < length; boundary += 64) {
+                    for (int at : new int[] {boundary - 1, boundary, boundary + 1}) {
+                        String s0 = randomString(alphabet, length, rng);
+                        StringBuilder t = new StringBuilder(s0);
+                        transpose(t, at);
+                        String s1 = mutate(t.toString(), alphabet, rng);
+                        assertEquals(referenceDistance(s0, t.toString()), editDistance(s0, t.toString()), s0 + " -> " + t);
+                        assertEquals(referenceDistance(s0, s1), editDistance(s0, s1), s0 + " -> " + s1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEditDistancesMatchesSingle () {
+        Random rng = new Random(7);
+        for (String alphabet : new String[] {LATIN, WIDE}) {
+            for (int length : LENGTHS) {
+                String query = randomString(alphabet, length, rng);
+                String[] words = new String[40];
+                for (int k = 0; k < words.length; k++) {
+                    words[k] = (k % 2 == 0) ? mutate(query, alphabet, rng) : randomString(alphabet, LENGTHS[rng.nextInt(LENGTHS.length)], rng);
+                }
+                int[] distances = new int[words.length - 5];
+                editDistances(query, words, 5, words.length, distances);
+                for (int k = 5; k < words.length; k++) {
+                    assertEquals(referenceDistance(query, words[k]), distances[k - 5], query + " -> " + words[k]);
+                    assertEquals(distances[k - 5], editDistance(query, words[k], new int[3 * (words[k].length() + 1)]));
+                }
+            }
+        }
+    }
+
+
+    // -----------------------------------------------
+    // Bounded Distance
+    // -----------------------------------------------
+
+    @Test
+    public void testEditDistanceWithinLargeK () {
+        for (String[] pair : PAIRS) {
+            int distance = editDistance(pair[0], pair[1]);
+            for (int k : new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE - 1, 1 << 30, 100}) {
+                assertEquals(distance, editDistanceWithin(pair[0], pair[1], k), pair[0] + " -> " + pair[1] + ", k = " + k);
+            }
+        }
+    }
+
+    @Test
+    public void testEditDistanceWithinSmallK () {
+        for (String[] pair : PAIRS) {
+            int distance = editDistance(pair[0], pair[1]);
+            for (int k = 0; k <= 8; k++) {
+                int expected = (distance <= k) ? distance : k + 1;
+                assertEquals(expected, editDistanceWithin(pair[0], pair[1], k), pair[0] + " -> " + pair[1] + ", k = " + k);
+            }
+        }
+    }
+
+    @Test
+    public void testEditDistanceWithinNegativeK () {
+        assertThrows(IllegalArgumentException.class, () -> editDistanceWithin("a", "b", -1));
+    }
+
+
+    // -----------------------------------------------
+    // Transformation Signatures
+    // -----------------------------------------------
+
+    @Test
+    public void testSignatureMatchesTransformationList () {
+        Random rng = new Random(15);
+        int exact = 0, overflowed = 0;
+        for (int trial = 0; trial < 3000; trial++) {
+            // Short strings over a small alphabet tie often; long strings over
+            // a large one need more than 29 manipulations
+            String alphabet = (trial % 3 == 2) ? "abcdefghijklmnopqrstuvwxyz" : LATIN;
+            int maxLength = (trial % 3 == 2) ? 60 : 12;
+            String s0 = randomString(alphabet, rng.nextInt(maxLength + 1), rng);
+            String s1 = (trial % 2 == 0) ? mutate(s0, alphabet, rng) : randomString(alphabet, rng.nextInt(maxLength + 1), rng);
+            List<String> transforms = getTransformationList(s0, s1);
+            long signature = getTransformationSignature(s0, s1);
+            assertEquals(getTransformationSignature(transforms), signature, s0 + " -> " + s1);
+            assertEquals(transforms.size() <= 29, isExactSignature(signature), s0 + " -> " + s1);
+            if (isExactSignature(signature)) {
+                assertEquals(transforms.size(), getSignatureLength(signature));
+                exact++;
+            } else {
+                overflowed++;
+            }
+        }
+        assertTrue(exact > 0 && overflowed > 0, "Both exact and overflowed signatures are covered");
+    }
+
+    @Test
+    public void testSignatureDistinguishesLists () {
+        // Same length and distance, different manipulations
+        assertNotEquals(getTransformationSignature("ab", "ba"), getTransformationSignature("ab", "cb"));
+        assertNotEquals(getTransformationSignature(List.of("I", "D")), getTransformationSignature(List.of("D", "I")));
+        assertEquals(getTransformationSignature(List.of()), getTransformationSignature("same", "same"));
+        assertThrows(IllegalArgumentException.class, () -> getTransformationSignature(List.of("X")));
+    }
+
+    @Test
+    public void testBulkSignaturesMatchSingle () {
+        Random rng = new Random(22);
+        for (String alphabet : new String[] {LATIN, "abcdefghijklmnopqrstuvwxyz", WIDE}) {
+            for (int trial = 0; trial < 20; trial++) {
+                String query = randomString(alphabet, rng.nextInt(40), rng);
+                // Sorted words with shared prefixes, as a dictionary would have
+                String[] words = new String[200];
+                for (int k = 0; k < words.length; k++) {
+                    words[k] = (k % 3 == 0) ? mutate(query, alphabet, rng) : randomString(alphabet, rng.nextInt(40), rng);
+                    if (k > 0 && rng.nextBoolean()) {
+                        String other = words[rng.nextInt(k)];
+                        words[k] = other.substring(0, rng.nextInt(other.length() + 1)) + words[k];
+                    }
+                }
+                Arrays.sort(words);
+                int from = rng.nextInt(10), to = words.length - rng.nextInt(10);
+                long[] signatures = new long[to - from];
+                getTransformationSignatures(query, words, from, to, signatures);
+                for (int k = from; k < to; k++) {
+                    assertEquals(getTransformationSignature(query, words[k]), signatures[k - from], query + " -> " + words[k]);
+                }
+
+                int[] indices = rng.ints(60, 0, words.length).sorted().distinct().toArray();
+                long[] selected = new long[indices.length];
+                getTransformationSignatures(query, words, indices, selected);
+                for (int k = 0; k < indices.length; k++) {
+                    assertEquals(getTransformationSignature(query, words[indices[k]]), selected[k], query + " -> " + words[indices[k]]);
+                }
+            }
+        }
+    }
+
+}
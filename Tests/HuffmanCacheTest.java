@@ -0,0 +1,68 @@
+/**
+ * HuffmanCacheTest.java
+ */
+
+package main.compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class HuffmanCacheTest {
+
+    @Test
+    public void testHitsAndMisses () {
+        HuffmanCache cache = new HuffmanCache(4);
+        Huffman model = cache.get("aab");
+        assertSame(model, cache.get("aab"));
+        // Same characters in the same proportions, so the same fingerprint
+        assertSame(model, cache.get("abaaba"));
+        assertNotSame(model, cache.get("abb"));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.evictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testExactCounts () {
+        HuffmanCache cache = new HuffmanCache(4, 0);
+        Huffman model = cache.get("aab");
+        assertSame(model, cache.get("aba"));
+        assertNotSame(model, cache.get("abaaba"));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed () {
+        HuffmanCache cache = new HuffmanCache(2);
+        Huffman a = cache.get("a");
+        cache.get("b");
+        // Touch "a" so that "b" is the least recently used
+        assertSame(a, cache.get("a"));
+        cache.get("c");
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"));
+        assertEquals(2, cache.hits());
+        assertEquals(3, cache.misses());
+
+        cache.get("b");
+        assertEquals(2, cache.evictions());
+        assertEquals(4, cache.misses());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(a, cache.get("a"));
+        assertEquals(5, cache.misses());
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    public void testInvalidArguments () {
+        assertThrows(IllegalArgumentException.class, () -> new HuffmanCache(0));
+        assertThrows(IllegalArgumentException.class, () -> new HuffmanCache(1, -1));
+    }
+
+}
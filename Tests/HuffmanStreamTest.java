@@ -0,0 +1,136 @@
+/**
+ * HuffmanStreamTest.java
+ */
+
+package main.compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class HuffmanStreamTest {
+
+    private static final String ALPHABET = "the quick brown fox jumps over the lazy dog";
+    // Long enough that the compressed message spans several 8 KB buffers
+    private static final int LENGTH = 3 * 8192 * 8 / 4 + 123;
+
+    private static String randomMessage (int length, long seed) {
+        Random rng = new Random(seed);
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            message.append(ALPHABET.charAt(rng.nextInt(ALPHABET.length())));
+        }
+        return message.toString();
+    }
+
+    /**
+     * Compresses the message through a HuffmanWriter, writing it in pieces of
+     * the given length (single characters if 1).
+     */
+    private static byte[] writeStreamed (Huffman huffman, String message, int piece) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HuffmanWriter writer = new HuffmanWriter(huffman, out)) {
+            for (int i = 0; i < message.length(); i += piece) {
+                int end = Math.min(message.length(), i + piece);
+                if (piece == 1) {
+                    writer.write(message.charAt(i));
+                } else if ((i / piece) % 2 == 0) {
+                    writer.write(message, i, end - i);
+                } else {
+                    writer.write(message.substring(i, end).toCharArray());
+                }
+                if (i % (7 * piece) == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses through a HuffmanReader reading from a channel that hands
+     * over at most the given number of bytes per read.
+     */
+    private static String readStreamed (Huffman huffman, byte[] compressed, int trickle) throws IOException {
+        ByteBuffer source = ByteBuffer.wrap(compressed);
+        ReadableByteChannel channel = new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read (ByteBuffer dst) {
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(trickle, Math.min(dst.remaining(), source.remaining()));
+                ByteBuffer slice = source.slice();
+                slice.limit(n);
+                dst.put(slice);
+                source.position(source.position() + n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen () {
+                return open;
+            }
+
+            @Override
+            public void close () {
+                open = false;
+            }
+        };
+        StringBuilder message = new StringBuilder();
+        try (HuffmanReader reader = new HuffmanReader(huffman, channel)) {
+            char[] cbuf = new char[1000];
+            for (int n; (n = reader.read(cbuf, 0, cbuf.length)) >= 0; ) {
+                message.append(cbuf, 0, n);
+            }
+            assertEquals(-1, reader.read(cbuf, 0, cbuf.length));
+        }
+        return message.toString();
+    }
+
+    @Test
+    public void testWriterMatchesCompress () throws IOException {
+        Huffman huffman = new Huffman(ALPHABET);
+        for (int length : new int[] {0, 1, 100, LENGTH}) {
+            String message = randomMessage(length, length);
+            byte[] expected = huffman.compress(message);
+            for (int piece : new int[] {1, 7, 4096, 10000}) {
+                assertArrayEquals(expected, writeStreamed(huffman, message, piece), length + " in " + piece);
+            }
+        }
+        assertTrue(huffman.compress(randomMessage(LENGTH, LENGTH)).length > 2 * 8192);
+    }
+
+    @Test
+    public void testReaderRoundTrip () throws IOException {
+        Huffman huffman = new Huffman(ALPHABET);
+        for (int length : new int[] {0, 1, 100, LENGTH}) {
+            String message = randomMessage(length, length);
+            byte[] compressed = huffman.compress(message);
+            for (int trickle : new int[] {1, 3, 8192}) {
+                assertEquals(message, readStreamed(huffman, compressed, trickle), length + " by " + trickle);
+            }
+            assertEquals(message, readStreamed(huffman, writeStreamed(huffman, message, 1), 8192));
+        }
+    }
+
+    @Test
+    public void testClosed () throws IOException {
+        Huffman huffman = new Huffman(ALPHABET);
+        HuffmanWriter writer = new HuffmanWriter(huffman, new ByteArrayOutputStream());
+        writer.close();
+        writer.close();
+        assertThrows(IOException.class, () -> writer.write('a'));
+        HuffmanReader reader = new HuffmanReader(huffman, new ByteArrayInputStream(huffman.compress("abc")));
+        reader.close();
+        assertThrows(IOException.class, () -> reader.read());
+    }
+
+}
@@ -0,0 +1,335 @@
+/**
+ * HuffmanTest.java
+ */
+
+package main.compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+public class HuffmanTest {
+
+    /**
+     * Returns a message of the given length drawn uniformly from the
+     * characters of the given alphabet.
+     */
+    private static String randomMessage (String alphabet, int length, long seed) {
+        Random rng = new Random(seed);
+        StringBuilder message = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            message.append(alphabet.charAt(rng.nextInt(alphabet.length())));
+        }
+        return message.toString();
+    }
+
+
+    // -----------------------------------------------
+    // Interleaved Streams
+    // -----------------------------------------------
+
+    @Test
+    public void testInterleavedOneBitCodes () {
+        // "a" and ETB_CHAR get 1-bit codes, which divide the refill guarantee
+        Huffman huffman = new Huffman("a");
+        String message = randomMessage("a", 1000, 1);
+        assertEquals(message, huffman.decompressInterleaved(huffman.compressInterleaved(message)));
+    }
+
+    @Test
+    public void testInterleavedThreeBitCodes () {
+        // 7 characters and ETB_CHAR get 3-bit codes, which divide the refill guarantee
+        Huffman huffman = new Huffman("abcdefg");
+        String message = randomMessage("abcdefg", 1000, 2);
+        assertEquals(message, huffman.decompressInterleaved(huffman.compressInterleaved(message)));
+    }
+
+    @Test
+    public void testInterleavedLengths () {
+        Huffman huffman = new Huffman("the quick brown fox jumps over the lazy dog");
+        for (int length : new int[] {0, 1, 3, 4, 5, 71, 72, 224, 4099}) {
+            String message = randomMessage("the quick brown fox jumps over the lazy dog", length, length);
+            assertEquals(message, huffman.decompressInterleaved(huffman.compressInterleaved(message)));
+        }
+    }
+
+    @Test
+    public void testInterleavedMalformed () {
+        Huffman huffman = new Huffman("abcdefg");
+        byte[] valid = huffman.compressInterleaved(randomMessage("abcdefg", 100, 4));
+        // Shorter than the header
+        for (int length = 0; length < 16; length++) {
+            byte[] truncated = Arrays.copyOf(valid, length);
+            assertThrows(IllegalArgumentException.class, () -> huffman.decompressInterleaved(truncated));
+        }
+        // Message length negative or beyond what the streams could hold
+        for (int length : new int[] {-1, Integer.MAX_VALUE, 8 * (valid.length - 16) + 1}) {
+            byte[] corrupt = valid.clone();
+            ByteBuffer.wrap(corrupt).putInt(0, length);
+            assertThrows(IllegalArgumentException.class, () -> huffman.decompressInterleaved(corrupt));
+        }
+        // Stream lengths negative, past the end, or overflowing the offset
+        for (int stream = 0; stream < 3; stream++) {
+            for (int length : new int[] {-1, valid.length, Integer.MAX_VALUE}) {
+                byte[] corrupt = valid.clone();
+                ByteBuffer.wrap(corrupt).putInt(4 + 4 * stream, length);
+                assertThrows(IllegalArgumentException.class, () -> huffman.decompressInterleaved(corrupt));
+            }
+        }
+    }
+
+
+
+    // -----------------------------------------------
+    // Blocks
+    // -----------------------------------------------
+
+    @Test
+    public void testBlocksRoundTrip () {
+        String alphabet = "the quick brown fox jumps over the lazy dog";
+        Huffman huffman = new Huffman(alphabet);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            // Empty, shorter than one block, exactly one, and several with a partial last
+            for (int length : new int[] {0, 1, 99, 100, 1000, 1234}) {
+                String message = randomMessage(alphabet, length, length);
+                byte[] compressed = huffman.compressBlocks(message, 100, pool);
+                assertEquals(message, huffman.decompressBlocks(compressed, pool));
+                assertEquals(message, huffman.decompressBlocks(compressed));
+                int blocks = Math.max(1, (length + 99) / 100);
+                for (int b = 0; b < blocks; b++) {
+                    assertEquals(message.substring(Math.min(length, 100 * b), Math.min(length, 100 * (b + 1))),
+                            huffman.decompressBlock(compressed, b));
+                }
+                assertThrows(IndexOutOfBoundsException.class, () -> huffman.decompressBlock(compressed, blocks));
+            }
+            String message = randomMessage(alphabet, 5000, 5);
+            assertEquals(message, huffman.decompressBlocks(huffman.compressBlocks(message)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBlocksMalformed () {
+        Huffman huffman = new Huffman("abcdefg");
+        byte[] valid = huffman.compressBlocks(randomMessage("abcdefg", 250, 6), 100, ForkJoinPool.commonPool());
+        for (int length = 0; length < 4 + 8 * 3; length++) {
+            byte[] truncated = Arrays.copyOf(valid, length);
+            assertThrows(IllegalArgumentException.class, () -> huffman.decompressBlocks(truncated));
+        }
+        // Block count, then a block's character count and compressed length
+        for (int offset : new int[] {0, 4, 8, 12, 16}) {
+            for (int value : new int[] {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, valid.length}) {
+                byte[] corrupt = valid.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, value);
+                assertThrows(IllegalArgumentException.class, () -> huffman.decompressBlocks(corrupt));
+                if (offset <= 8) {
+                    // Seeking to the first block still reads its own lengths
+                    assertThrows(IllegalArgumentException.class, () -> huffman.decompressBlock(corrupt, 0));
+                }
+            }
+        }
+    }
+
+
+    // -----------------------------------------------
+    // Code Table
+    // -----------------------------------------------
+
+    /**
+     * Returns a code table with the given maximum length, counts of codes of
+     * each length 1..maxLength (each under 128, so one varint byte), and
+     * characters.
+     */
+    private static ByteBuffer codeTable (int maxLength, int[] counts, char... characters) {
+        ByteBuffer table = ByteBuffer.allocate(1 + counts.length + 2 * characters.length);
+        table.put((byte) maxLength);
+        for (int count : counts) {
+            table.put((byte) count);
+        }
+        for (char c : characters) {
+            table.putChar(c);
+        }
+        return table.flip();
+    }
+
+    @Test
+    public void testCodeTableRoundTrip () {
+        String[] corpora = {"", "a", "the quick brown fox jumps over the lazy dog"};
+        for (int i = 0; i < corpora.length * 2; i++) {
+            String corpus = corpora[i / 2];
+            // Every corpus with and without limiting its code lengths
+            Huffman huffman = (i % 2 == 0) ? new Huffman(corpus) : new Huffman(corpus, 5);
+            String message = corpus.isEmpty() ? "" : randomMessage(corpus, 500, i);
+            Huffman read = Huffman.readCodeTable(ByteBuffer.wrap(huffman.getCodeTable()));
+            assertArrayEquals(huffman.getCodeTable(), read.getCodeTable());
+            assertEquals(message, Huffman.decode(huffman.compress(message, true)));
+        }
+    }
+
+    @Test
+    public void testCodeTableValid () {
+        Huffman huffman = Huffman.readCodeTable(codeTable(2, new int[] {1, 2}, 'a', Huffman.ETB_CHAR, 'b'));
+        assertEquals("abba", huffman.decompress(huffman.compress("abba")));
+    }
+
+    @Test
+    public void testCodeTableIncomplete () {
+        // Codes 0 and 10 leave 11 unassigned
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(2, new int[] {1, 1}, 'a', Huffman.ETB_CHAR)));
+    }
+
+    @Test
+    public void testCodeTableOverFull () {
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(2, new int[] {2, 1}, 'a', Huffman.ETB_CHAR, 'b')));
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(1, new int[] {3}, 'a', Huffman.ETB_CHAR, 'b')));
+    }
+
+    @Test
+    public void testCodeTableTooLong () {
+        // A complete code with one code of each length 1..L-1 and two of length L
+        int maxLength = Huffman.MAX_CODE_LENGTH + 1;
+        int[] counts = new int[maxLength];
+        Arrays.fill(counts, 1);
+        counts[maxLength - 1] = 2;
+        char[] characters = new char[maxLength + 1];
+        for (int i = 0; i < characters.length; i++) {
+            characters[i] = (char) ('A' + i);
+        }
+        characters[0] = Huffman.ETB_CHAR;
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(maxLength, counts, characters)));
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(255, new int[0])));
+    }
+
+    @Test
+    public void testCodeTableMalformed () {
+        // Truncated
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(2, new int[] {1, 2}, 'a', Huffman.ETB_CHAR)));
+        // Repeated character
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(1, new int[] {2}, 'a', 'a')));
+        // No ETB_CHAR
+        assertThrows(IllegalArgumentException.class,
+                () -> Huffman.readCodeTable(codeTable(1, new int[] {2}, 'a', 'b')));
+    }
+
+
+    // -----------------------------------------------
+    // Code Length Limits
+    // -----------------------------------------------
+
+    /**
+     * Returns the number of codes of each length 0..L in the given
+     * Huffman's code table, whose maximum length is L.
+     */
+    private static int[] lengthCounts (Huffman huffman) {
+        ByteBuffer table = ByteBuffer.wrap(huffman.getCodeTable());
+        int[] counts = new int[(table.get() & 0xFF) + 1];
+        for (int length = 1; length < counts.length; length++) {
+            int shift = 0, b;
+            do {
+                b = table.get() & 0xFF;
+                counts[length] |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b >= 0x80);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns character counts following the Fibonacci sequence, whose
+     * unlimited Huffman code is as deep as there are characters.
+     */
+    private static int[] fibonacciCounts (int characters) {
+        int[] counts = new int['a' + characters];
+        for (int i = 0, a = 1, b = 1; i < characters; i++, b = a + b, a = b - a) {
+            counts['a' + i] = a;
+        }
+        return counts;
+    }
+
+    @Test
+    public void testLimitedCodeLengths () {
+        int[][] corpora = {fibonacciCounts(40), Huffman.countCharacters(randomMessage("aaaaaaaabbbbccd", 1000, 7))};
+        for (int[] counts : corpora) {
+            int deepest = new Huffman(counts, Integer.MAX_VALUE).getCodeTable()[0];
+            double previousAverage = 0;
+            for (int limit = deepest; limit >= 1; limit--) {
+                Huffman huffman;
+                try {
+                    huffman = new Huffman(counts, limit);
+                } catch (IllegalArgumentException e) {
+                    // Only when 2^limit codes are too few for every character
+                    int characters = 0;
+                    for (int length : lengthCounts(new Huffman(counts, Integer.MAX_VALUE))) {
+                        characters += length;
+                    }
+                    assertTrue((1L << limit) < characters);
+                    continue;
+                }
+                int[] lengths = lengthCounts(huffman);
+                assertTrue(lengths.length - 1 <= limit);
+                // Kraft sum, scaled by 2^L, of a complete prefix code
+                long kraft = 0;
+                for (int length = 1; length < lengths.length; length++) {
+                    kraft += (long) lengths[length] << (lengths.length - 1 - length);
+                }
+                assertEquals(1L << (lengths.length - 1), kraft, "limit " + limit);
+                // Tighter limits never shorten the average code
+                assertTrue(huffman.getAverageCodeLength() >= previousAverage - 1e-9);
+                previousAverage = huffman.getAverageCodeLength();
+                String message = randomMessage("abcd", 200, limit);
+                assertEquals(message, huffman.decompress(huffman.compress(message)));
+            }
+        }
+    }
+
+    @Test
+    public void testLimitedCodeLengthsOptimal () {
+        // Exhaustively compare against every length assignment of a few characters
+        int[] counts = new int['a' + 6];
+        int[] weights = {1, 1, 2, 3, 5, 8, 13};
+        for (int i = 0; i < 6; i++) {
+            counts['a' + i] = weights[i + 1];
+        }
+        for (int limit = 3; limit <= 5; limit++) {
+            Huffman huffman = new Huffman(counts, limit);
+            double best = Double.MAX_VALUE;
+            // ETB_CHAR, counted once, plus the six characters
+            int[] lengths = new int[7];
+            Arrays.fill(lengths, 1);
+            while (true) {
+                double kraft = 0, bits = 0;
+                for (int i = 0; i < 7; i++) {
+                    kraft += Math.pow(2, -lengths[i]);
+                    bits += weights[i] * lengths[i];
+                }
+                if (kraft <= 1) {
+                    best = Math.min(best, bits);
+                }
+                int i = 0;
+                while (i < 7 && lengths[i] == limit) {
+                    lengths[i++] = 1;
+                }
+                if (i == 7) {
+                    break;
+                }
+                lengths[i]++;
+            }
+            assertEquals(best / 33, huffman.getAverageCodeLength(), 1e-9, "limit " + limit);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * T3PlayerTest.java
+ */
+
+package main.t3;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+public class T3PlayerTest {
+
+    // Minimax scores for the player to move, memoized by state
+    private final Map<T3State, Integer> scores = new HashMap<>();
+
+    /**
+     * Returns the minimax score of the state for the player to move in it,
+     * searching every move without pruning.
+     */
+    private int minimax (T3State state) {
+        if (state.isWin()) {
+            return -1;
+        }
+        if (state.isTie()) {
+            return 0;
+        }
+        Integer known = scores.get(state);
+        if (known != null) {
+            return known;
+        }
+        int best = -1;
+        for (T3State child : state.getTransitions().values()) {
+            best = Math.max(best, -minimax(child));
+        }
+        scores.put(state, best);
+        return best;
+    }
+
+    /**
+     * Returns the action the spec calls for: an immediately winning one if
+     * there is any, otherwise the first in col, row, then move order of
+     * those with the best minimax score.
+     */
+    private T3Action referenceChoice (T3State state) {
+        Map<T3Action, T3State> transitions = state.getTransitions();
+        for (Map.Entry<T3Action, T3State> transition : transitions.entrySet()) {
+            if (transition.getValue().isWin()) {
+                return transition.getKey();
+            }
+        }
+        T3Action best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (Map.Entry<T3Action, T3State> transition : transitions.entrySet()) {
+            int score = -minimax(transition.getValue());
+            if (score > bestScore) {
+                best = transition.getKey();
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns random non-terminal states with between minFilled and
+     * maxFilled cells filled, reached by random legal moves.
+     */
+    private static List<T3State> randomStates (int count, int minFilled, int maxFilled, long seed) {
+        Random rng = new Random(seed);
+        List<T3State> states = new ArrayList<>();
+        while (states.size() < count) {
+            T3State state = new T3State(rng.nextBoolean());
+            int filled = minFilled + rng.nextInt(maxFilled - minFilled + 1);
+            for (int i = 0; i < filled && !state.isWin() && !state.isTie(); i++) {
+                List<T3Action> actions = new ArrayList<>(state.getTransitions().keySet());
+                state = state.getNextState(actions.get(rng.nextInt(actions.size())));
+            }
+            if (!state.isWin() && !state.isTie()) {
+                states.add(state);
+            }
+        }
+        return states;
+    }
+
+    @Test
+    public void testTakesImmediateWin () {
+        // Only a 5 in the empty cell of the top row makes 13
+        T3State state = new T3State(true, new int[][] {{6, 2, 0}, {0, 0, 0}, {0, 0, 0}});
+        assertEquals(new T3Action(2, 0, 5), new T3Player().choose(state));
+    }
+
+    @Test
+    public void testMatchesMinimaxReference () {
+        for (T3State state : randomStates(100, 3, 7, 25)) {
+            assertEquals(referenceChoice(state), new T3Player().choose(state), state.toString());
+        }
+    }
+
+    @Test
+    public void testWarmTableMatchesFreshPlayer () {
+        T3Player reused = new T3Player();
+        List<T3State> states = randomStates(100, 3, 7, 26);
+        // A second pass sees every state again with the table fully warm
+        for (int pass = 0; pass < 2; pass++) {
+            for (T3State state : states) {
+                assertEquals(new T3Player().choose(state), reused.choose(state), state.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testGameAgainstItself () {
+        // Each player keeps its table for the whole game
+        T3Player odd = new T3Player(), even = new T3Player();
+        T3State state = new T3State(false, new int[][] {{1, 0, 0}, {0, 2, 0}, {0, 0, 3}});
+        for (boolean oddTurn = false; !state.isWin() && !state.isTie(); oddTurn = !oddTurn) {
+            T3Action expected = referenceChoice(state);
+            assertEquals(expected, (oddTurn ? odd : even).choose(state), state.toString());
+            state = state.getNextState(expected);
+        }
+    }
+
+}